@@ -0,0 +1,64 @@
+package com.example.demo.service;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.entity.Permission;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// boots the whole application on an in-memory H2 database, so benchmarks run the same beans as production
+final class BenchmarkContext {
+    static final String USERNAME = "bench";
+    static final String PASSWORD = "password1";
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        // command line arguments, so they win over application.yaml
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MYSQL;NON_KEYWORDS=USER",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+        seed(context);
+        return context;
+    }
+
+    // one user with two roles and a realistic number of permissions, which is what buildScope walks
+    private static void seed(ConfigurableApplicationContext context) {
+        PermissionRepository permissionRepository = context.getBean(PermissionRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        PasswordEncoder passwordEncoder = context.getBean(PasswordEncoder.class);
+
+        Set<Role> roles = new HashSet<>();
+        for (String roleName : new String[]{"ADMIN", "USER"}) {
+            Set<Permission> permissions = new HashSet<>();
+            for (int i = 0; i < 10; i++) {
+                permissions.add(permissionRepository.save(Permission.builder().name(roleName + "_PERMISSION_" + i).build()));
+            }
+            roles.add(roleRepository.save(Role.builder().name(roleName).permissions(permissions).build()));
+        }
+
+        userRepository.save(User.builder()
+                .username(USERNAME)
+                .password(passwordEncoder.encode(PASSWORD))
+                .roles(roles)
+                .build());
+        context.getBean(UsernameIndex.class).rebuild();
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.demo.service;
+
+import org.openjdk.jmh.annotations.Threads;
+
+// BCrypt is CPU bound, per-op time grows once threads exceed cores
+@Threads(Threads.MAX)
+public class ContendedPasswordHashingBenchmark extends PasswordHashingBenchmark {
+}
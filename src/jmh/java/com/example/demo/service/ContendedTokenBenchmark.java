@@ -0,0 +1,8 @@
+package com.example.demo.service;
+
+import org.openjdk.jmh.annotations.Threads;
+
+// same benchmarks as TokenBenchmark, one thread per CPU sharing the same beans and token
+@Threads(Threads.MAX)
+public class ContendedTokenBenchmark extends TokenBenchmark {
+}
@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt matching at several cost factors, to pick security.password.strength and size the hashing pool.
+ * Run with mvn -Pjmh -DskipTests verify -Djmh.args="PasswordHashingBenchmark".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashingBenchmark {
+    @Param({"4", "8", "10", "12"})
+    int strength;
+
+    BCryptPasswordEncoder passwordEncoder;
+    String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        hash = passwordEncoder.encode(BenchmarkContext.PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(BenchmarkContext.PASSWORD, hash);
+    }
+}
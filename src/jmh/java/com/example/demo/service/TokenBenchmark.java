@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.Mapper.UserCredentialsMapper;
+import com.example.demo.configuaration.CustomJwtDecoder;
+import com.example.demo.dto.projection.UserCredentials;
+import com.example.demo.repository.UserRepository;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token mint, verify and decode hot paths, single threaded.
+ * Run with mvn -Pjmh -DskipTests verify -Djmh.args="TokenBenchmark -prof gc".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+    ConfigurableApplicationContext context;
+    AuthenticationService authenticationService;
+    CustomJwtDecoder customJwtDecoder;
+    VerifiedTokenCache verifiedTokenCache;
+    JwtAuthenticationConverter jwtAuthenticationConverter;
+    // what jwtAuthenticationConverter did before authorities were cached per scope
+    JwtAuthenticationConverter plainJwtAuthenticationConverter;
+    UserCredentials credentials;
+    Jwt jwt;
+    String token;
+    String jti;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ParseException {
+        context = BenchmarkContext.start();
+        authenticationService = context.getBean(AuthenticationService.class);
+        customJwtDecoder = context.getBean(CustomJwtDecoder.class);
+        verifiedTokenCache = context.getBean(VerifiedTokenCache.class);
+        jwtAuthenticationConverter = context.getBean(JwtAuthenticationConverter.class);
+
+        JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        jwtGrantedAuthoritiesConverter.setAuthorityPrefix("");
+        plainJwtAuthenticationConverter = new JwtAuthenticationConverter();
+        plainJwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwtGrantedAuthoritiesConverter);
+
+        credentials = context.getBean(UserCredentialsMapper.class)
+                .toUserCredentials(context.getBean(UserRepository.class).findAuthorityRowsByUsername(BenchmarkContext.USERNAME))
+                .orElseThrow();
+        token = authenticationService.generateToken(credentials);
+        jti = SignedJWT.parse(token).getJWTClaimsSet().getJWTID();
+        jwt = customJwtDecoder.decode(token);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return authenticationService.generateToken(credentials);
+    }
+
+    @Benchmark
+    public SignedJWT verifyToken() throws JOSEException, ParseException {
+        return authenticationService.verifyToken(token, false);
+    }
+
+    @Benchmark
+    public String buildScope() {
+        return authenticationService.buildScope(credentials);
+    }
+
+    // the common case, a token seen before by this instance
+    @Benchmark
+    public Jwt decodeCached() {
+        return customJwtDecoder.decode(token);
+    }
+
+    // first sight of a token, includes the cost of evicting it
+    @Benchmark
+    public Jwt decodeUncached() {
+        verifiedTokenCache.evict(jti);
+        return customJwtDecoder.decode(token);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convertAuthentication() {
+        return jwtAuthenticationConverter.convert(jwt);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken convertAuthenticationPlain() {
+        return plainJwtAuthenticationConverter.convert(jwt);
+    }
+}
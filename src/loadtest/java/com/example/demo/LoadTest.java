@@ -0,0 +1,302 @@
+package com.example.demo;
+
+import com.example.demo.entity.Permission;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.UsernameIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * End-to-end load test of the /identity API on the in-memory H2 database of test.properties.
+ * Boots the application on a random port, seeds users, then runs closed-loop sessions
+ * (token, myInfo, introspect, refresh, myInfo, logout) from concurrent clients and reports
+ * throughput and p50/p99/p999 latency per endpoint.
+ * <p>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.args="users=200 concurrency=64 duration=60 warmup=10 virtual=false"
+ */
+public class LoadTest {
+    private static final String PASSWORD = "password1";
+    private static final String[] ENDPOINTS = {"POST /auth/token", "GET /users/myInfo", "POST /auth/introspect",
+            "POST /auth/refresh", "POST /auth/logout"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int users;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final boolean virtual;
+    private String baseUrl;
+
+    LoadTest(Map<String, String> options) {
+        users = Integer.parseInt(options.getOrDefault("users", "200"));
+        concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        virtual = Boolean.parseBoolean(options.getOrDefault("virtual", "false"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) options.put(pair[0], pair[1]);
+        }
+        new LoadTest(options).run();
+    }
+
+    void run() throws Exception {
+        // command line arguments win over application.yaml and test.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class).run(
+                "--spring.config.import=classpath:test.properties",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MYSQL;NON_KEYWORDS=USER",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--server.port=0",
+                "--management.server.port=0",
+                // every client comes from 127.0.0.1 and reuses a small set of usernames
+                "--security.login.throttle.per-ip=1000000",
+                "--security.login.throttle.per-username=1000000",
+                "--logging.level.root=WARN")) {
+            seed(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port + context.getEnvironment().getProperty("server.servlet.context-path", "");
+
+            System.out.printf("Load test: %d users, %d clients, %ds warm up + %ds, %s threads%n",
+                    users, concurrency, warmup.toSeconds(), duration.toSeconds(), virtual ? "virtual" : "platform");
+            drive();
+        }
+    }
+
+    // every user shares the same hash, encoding it once keeps seeding fast at any N
+    private void seed(ConfigurableApplicationContext context) {
+        PermissionRepository permissionRepository = context.getBean(PermissionRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+
+        List<Role> roles = new ArrayList<>();
+        for (String roleName : new String[]{"ADMIN", "USER", "AUDITOR"}) {
+            Set<Permission> permissions = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                permissions.add(permissionRepository.save(Permission.builder().name(roleName + "_PERMISSION_" + i).build()));
+            }
+            roles.add(roleRepository.save(Role.builder().name(roleName).permissions(permissions).build()));
+        }
+
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            batch.add(User.builder()
+                    .username("loadtest" + i)
+                    .password(hash)
+                    .firstName("Load")
+                    .lastName("Test " + i)
+                    .roles(new HashSet<>(roles.subList(0, 1 + i % roles.size())))
+                    .build());
+        }
+        userRepository.saveAll(batch);
+        // seeded behind UserService's back, so the index has to pick them up now
+        context.getBean(UsernameIndex.class).rebuild();
+    }
+
+    private void drive() throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        List<Future<Samples>> futures = new ArrayList<>();
+        try (ExecutorService clients = virtual
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(concurrency)) {
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> client(measureFrom, deadline)));
+            }
+        }
+
+        List<Samples> results = new ArrayList<>();
+        for (Future<Samples> future : futures) results.add(future.get());
+        // clients that stop early (interrupted, or a last call running past the deadline) make this differ from duration
+        long elapsed = Math.max(1, System.nanoTime() - measureFrom);
+        report(results, elapsed / 1e9);
+    }
+
+    private Samples client(long measureFrom, long deadline) {
+        Samples samples = new Samples(measureFrom);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            String username = "loadtest" + random.nextInt(users);
+            try {
+                session(samples, username);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return samples;
+            }
+        }
+        return samples;
+    }
+
+    // one login session, weighted the way clients use the API: mostly authenticated reads
+    private void session(Samples samples, String username) throws InterruptedException {
+        JsonNode login = result(samples, ENDPOINTS[0], post(samples, ENDPOINTS[0], "/auth/token",
+                "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"));
+        String token = text(login, "token");
+        if (token == null) return;
+
+        for (int i = 0; i < 5; i++) get(samples, ENDPOINTS[1], "/users/myInfo", token);
+        post(samples, ENDPOINTS[2], "/auth/introspect", "{\"token\":\"" + token + "\"}");
+
+        JsonNode refresh = result(samples, ENDPOINTS[3], post(samples, ENDPOINTS[3], "/auth/refresh",
+                "{\"refreshToken\":\"" + text(login, "refreshToken") + "\"}"));
+        String refreshed = text(refresh, "token");
+        if (refreshed == null) return;
+
+        for (int i = 0; i < 3; i++) get(samples, ENDPOINTS[1], "/users/myInfo", refreshed);
+        post(samples, ENDPOINTS[2], "/auth/introspect", "{\"token\":\"" + refreshed + "\"}");
+        post(samples, ENDPOINTS[4], "/auth/logout",
+                "{\"token\":\"" + refreshed + "\",\"refreshToken\":\"" + text(refresh, "refreshToken") + "\"}");
+    }
+
+    private JsonNode result(Samples samples, String endpoint, HttpResponse<String> response) {
+        if (response == null) return null;
+        try {
+            return objectMapper.readTree(response.body()).path("result");
+        } catch (IOException e) {
+            samples.error(endpoint);
+            return null;
+        }
+    }
+
+    private static String text(JsonNode result, String field) {
+        if (result == null) return null;
+        JsonNode value = result.path(field);
+        return value.isTextual() ? value.asText() : null;
+    }
+
+    private HttpResponse<String> post(Samples samples, String endpoint, String path, String body) throws InterruptedException {
+        return send(samples, endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build());
+    }
+
+    private HttpResponse<String> get(Samples samples, String endpoint, String path, String token) throws InterruptedException {
+        return send(samples, endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build());
+    }
+
+    // null when the call failed, so the session stops instead of carrying a bad token on; failures are
+    // counted against the endpoint that was called
+    private HttpResponse<String> send(Samples samples, String endpoint, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            samples.error(endpoint);
+            return null;
+        }
+        long end = System.nanoTime();
+
+        if (response.statusCode() / 100 != 2) {
+            samples.error(endpoint);
+            return null;
+        }
+        samples.record(endpoint, start, end - start);
+        return response;
+    }
+
+    private void report(List<Samples> results, double elapsedSeconds) {
+        System.out.printf("Measured over %.1fs%n", elapsedSeconds);
+        System.out.printf("%-24s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (String endpoint : ENDPOINTS) {
+            long[] latencies = results.stream()
+                    .map(samples -> samples.latencies(endpoint))
+                    .flatMapToLong(Arrays::stream)
+                    .sorted()
+                    .toArray();
+            long errors = results.stream().mapToLong(samples -> samples.errors(endpoint)).sum();
+            if (latencies.length == 0 && errors == 0) continue;
+
+            System.out.printf("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    endpoint, latencies.length, errors, latencies.length / elapsedSeconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    // latencies of one client thread, nothing shared until the run is over
+    private static final class Samples {
+        private final long measureFrom;
+        private final Map<String, long[]> latencies = new LinkedHashMap<>();
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private final Map<String, Long> errors = new LinkedHashMap<>();
+
+        Samples(long measureFrom) {
+            this.measureFrom = measureFrom;
+        }
+
+        void record(String endpoint, long start, long nanos) {
+            if (start < measureFrom) return;
+
+            int count = counts.getOrDefault(endpoint, 0);
+            long[] values = latencies.computeIfAbsent(endpoint, key -> new long[1024]);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                latencies.put(endpoint, values);
+            }
+            values[count] = nanos;
+            counts.put(endpoint, count + 1);
+        }
+
+        void error(String endpoint) {
+            if (System.nanoTime() >= measureFrom) errors.merge(endpoint, 1L, Long::sum);
+        }
+
+        long[] latencies(String endpoint) {
+            return Arrays.copyOf(latencies.getOrDefault(endpoint, new long[0]), counts.getOrDefault(endpoint, 0));
+        }
+
+        long errors(String endpoint) {
+            return errors.getOrDefault(endpoint, 0L);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.Mapper;
+
+import com.example.demo.dto.projection.UserAuthorityRow;
+import com.example.demo.dto.projection.UserCredentials;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// written by hand: MapStruct maps one source to one target, not many rows into one object
+@Component
+public class UserCredentialsMapper {
+    // one row per (role, permission) of the user, folded back into role -> permissions; empty when there is no user
+    public Optional<UserCredentials> toUserCredentials(List<UserAuthorityRow> rows) {
+        if (rows.isEmpty()) return Optional.empty();
+
+        Map<String, List<String>> roles = new LinkedHashMap<>();
+        rows.forEach(row -> {
+            if (row.getRole() == null) return;
+            List<String> permissions = roles.computeIfAbsent(row.getRole(), role -> new ArrayList<>());
+            if (row.getPermission() != null) permissions.add(row.getPermission());
+        });
+
+        return Optional.of(UserCredentials.builder()
+                .username(rows.get(0).getUsername())
+                .password(rows.get(0).getPassword())
+                .roles(roles)
+                .build());
+    }
+}
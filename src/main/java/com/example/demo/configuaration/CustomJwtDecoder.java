@@ -1,53 +1,100 @@
 package com.example.demo.configuaration;
 
-import com.example.demo.dto.request.IntrospectRequest;
+import com.example.demo.exception.AppException;
+import com.example.demo.service.AuthenticationMetrics;
 import com.example.demo.service.AuthenticationService;
+import com.example.demo.service.OpaqueTokenStore;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.VerifiedTokenCache;
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.spec.SecretKeySpec;
 import java.text.ParseException;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.Map;
 
 @Component
 public class CustomJwtDecoder implements JwtDecoder {
-    @Value("${jwt.signerKey}")
-    private String signerKey;
-
     @Autowired
     private AuthenticationService authenticationService;
 
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private AuthenticationMetrics authenticationMetrics;
+
+    // Jwt needs at least one header, handles have none of their own
+    private static final Map<String, Object> OPAQUE_HEADERS = Map.of("typ", "opaque");
+
+    // converts iat/exp/nbf from Date to Instant the same way NimbusJwtDecoder does
+    private final MappedJwtClaimSetConverter claimSetConverter = MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
 
     @Override
     public Jwt decode(String token) throws JwtException {
+        var sample = authenticationMetrics.start("decode");
+        try {
+            return decode(token, sample);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    private Jwt decode(String token, AuthenticationMetrics.Sample sample) {
+        if (OpaqueTokenStore.isHandle(token)) return decodeHandle(token, sample);
+
+        Jwt cached = verifiedTokenCache.get(token);
+        if (cached != null) return cached;
 
+        // parse, verify signature, expiry and revocation once, then reuse the parsed token
         try {
-            var response = authenticationService.introspect(IntrospectRequest.builder()
-                    .token(token)
-                    .build());
+            SignedJWT signedJWT = authenticationService.verifyToken(token, false);
+            Jwt jwt = toJwt(token, signedJWT.getHeader().toJSONObject(), signedJWT.getJWTClaimsSet());
 
-            if (!response.isValid())
-                throw new JwtException("Token invalid");
+            verifiedTokenCache.put(jwt);
+            // a logout may have happened while we were verifying, don't keep the entry if so
+            if (tokenRevocationService.mightBeRevoked(jwt.getId())) verifiedTokenCache.evict(jwt);
+
+            return jwt;
+        } catch (AppException e) {
+            sample.failed(e);
+            throw new BadJwtException("Token invalid");
         } catch (JOSEException | ParseException e) {
-            throw new JwtException(e.getMessage());
+            sample.failed(e);
+            throw new BadJwtException(e.getMessage());
         }
+    }
 
-        if (Objects.isNull(nimbusJwtDecoder)) {
-            SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
-            nimbusJwtDecoder = NimbusJwtDecoder
-                    .withSecretKey(secretKeySpec)
-                    .macAlgorithm(MacAlgorithm.HS512)
-                    .build();
+    // the store lookup is already a single hash lookup, no need to go through the verified token cache
+    private Jwt decodeHandle(String handle, AuthenticationMetrics.Sample sample) {
+        try {
+            return toJwt(handle, OPAQUE_HEADERS, authenticationService.verifyClaims(handle, false));
+        } catch (AppException e) {
+            sample.failed(e);
+            throw new BadJwtException("Token invalid");
+        } catch (JOSEException | ParseException e) {
+            sample.failed(e);
+            throw new BadJwtException(e.getMessage());
         }
+    }
+
+    private Jwt toJwt(String token, Map<String, Object> jwsHeaders, JWTClaimsSet claimsSet) {
+        Map<String, Object> claims = claimSetConverter.convert(claimsSet.getClaims());
 
-        return nimbusJwtDecoder.decode(token);
+        return Jwt.withTokenValue(token)
+                .headers(headers -> headers.putAll(jwsHeaders))
+                .claims(jwtClaims -> jwtClaims.putAll(claims))
+                .build();
     }
 }
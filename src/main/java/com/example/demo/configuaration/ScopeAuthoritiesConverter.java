@@ -0,0 +1,98 @@
+package com.example.demo.configuaration;
+
+import com.example.demo.service.ScopeCodec;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the authorities of a token once per distinct scope rather than once per request: most users share
+ * a handful of role combinations, so each scope / scope_bits value maps to a cached immutable list built from
+ * interned authority objects. The plain scope is split on spaces without a regex; tokens carrying the compact
+ * claim are expanded through ScopeCodec.
+ */
+@Component
+public class ScopeAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>>, MeterBinder {
+    // names only come from tokens we signed, so this stays the size of the catalog; the bound is a safety net
+    private static final int MAX_INTERNED = 10_000;
+
+    private final ScopeCodec scopeCodec;
+    private final Cache<String, List<GrantedAuthority>> byScope;
+    private final Cache<String, List<GrantedAuthority>> byScopeBits;
+    private final ConcurrentMap<String, GrantedAuthority> interned = new ConcurrentHashMap<>();
+    // a scope claim in another shape than our space-joined string, e.g. a JSON array
+    private final JwtGrantedAuthoritiesConverter fallback = new JwtGrantedAuthoritiesConverter();
+
+    public ScopeAuthoritiesConverter(ScopeCodec scopeCodec,
+                                     @Value("${jwt.authorities.max-cached-scopes:1000}") long maxCachedScopes) {
+        this.scopeCodec = scopeCodec;
+        this.byScope = Caffeine.newBuilder().maximumSize(maxCachedScopes).recordStats().build();
+        this.byScopeBits = Caffeine.newBuilder().maximumSize(maxCachedScopes).recordStats().build();
+        //Cusrom prefix cho role (SCOPE_ADMIN => ROLE_ADMIN)
+        fallback.setAuthorityPrefix("");
+    }
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        Object scopeBits = jwt.getClaims().get(ScopeCodec.CLAIM);
+        if (scopeBits instanceof String encoded) return fromScopeBits(encoded);
+
+        Object scope = jwt.getClaims().get("scope");
+        if (scope instanceof String names) return byScope.get(names, this::parse);
+        return fallback.convert(jwt);
+    }
+
+    private List<GrantedAuthority> fromScopeBits(String encoded) {
+        List<GrantedAuthority> authorities = byScopeBits.getIfPresent(encoded);
+        if (authorities != null) return authorities;
+
+        // unknown catalog version: authenticated without authorities until the client refreshes its token,
+        // not cached so the token works as soon as this instance sees the catalog it was issued from
+        authorities = scopeCodec.authorities(encoded);
+        if (authorities == null) return List.of();
+
+        authorities = List.copyOf(authorities);
+        byScopeBits.put(encoded, authorities);
+        return authorities;
+    }
+
+    private List<GrantedAuthority> parse(String scope) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        int start = 0;
+        while (start < scope.length()) {
+            int end = scope.indexOf(' ', start);
+            if (end < 0) end = scope.length();
+            if (end > start) authorities.add(intern(scope.substring(start, end)));
+            start = end + 1;
+        }
+        return List.copyOf(authorities);
+    }
+
+    private GrantedAuthority intern(String name) {
+        GrantedAuthority authority = interned.get(name);
+        if (authority != null) return authority;
+        if (interned.size() >= MAX_INTERNED) return new SimpleGrantedAuthority(name);
+        return interned.computeIfAbsent(name, SimpleGrantedAuthority::new);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byScope, "token_authorities", "claim", "scope");
+        CaffeineCacheMetrics.monitor(registry, byScopeBits, "token_authorities", "claim", ScopeCodec.CLAIM);
+    }
+}
@@ -4,16 +4,24 @@ import com.example.demo.dto.request.*;
 import com.example.demo.dto.response.AuthenticationResponse;
 import com.example.demo.dto.response.IntrospectResponse;
 import com.example.demo.service.AuthenticationService;
+import com.example.demo.service.LoginThrottle;
+import jakarta.servlet.http.HttpServletRequest;
 import com.nimbusds.jose.JOSEException;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.Objects;
 
 @RestController
@@ -22,8 +30,17 @@ import java.util.Objects;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AuthenticationController {
     AuthenticationService authenticationService;
+    LoginThrottle loginThrottle;
+
+    @NonFinal
+    @Value("${jwt.introspect.max-cache-age:30}")
+    protected long MAX_INTROSPECT_CACHE_AGE;
+
     @PostMapping("/token")
-    ApiResponse<AuthenticationResponse> authenticate(@RequestBody AuthenticationRequest request){
+    ApiResponse<AuthenticationResponse> authenticate(@RequestBody AuthenticationRequest request, HttpServletRequest httpRequest){
+        // before the user lookup and the password check, so rejected attempts cost no database or BCrypt work;
+        // behind a proxy getRemoteAddr is the client only with server.forward-headers-strategy set
+        loginThrottle.check(request.getUsername(), httpRequest.getRemoteAddr());
         var result = authenticationService.authenticate(request);
         return ApiResponse.<AuthenticationResponse>builder()
                 .result(result)
@@ -32,9 +49,23 @@ public class AuthenticationController {
 
 
     @PostMapping("/introspect")
-    ApiResponse<IntrospectResponse> authenticate(@RequestBody IntrospectRequest request) throws ParseException, JOSEException {
+    ResponseEntity<ApiResponse<IntrospectResponse>> authenticate(@RequestBody IntrospectRequest request) throws ParseException, JOSEException {
         var result = authenticationService.introspect(request);
-        return ApiResponse.<IntrospectResponse>builder()
+        // gateways may reuse an active result until the token expires, capped so a logout is seen soon enough
+        CacheControl cacheControl = result.isActive()
+                ? CacheControl.maxAge(Math.min(result.getExpiresIn(), MAX_INTROSPECT_CACHE_AGE), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.noStore();
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .body(ApiResponse.<IntrospectResponse>builder()
+                        .result(result)
+                        .build());
+    }
+
+    @PostMapping("/introspect/batch")
+    ApiResponse<List<IntrospectResponse>> authenticate(@RequestBody IntrospectBatchRequest request) {
+        var result = authenticationService.introspectBatch(request);
+        return ApiResponse.<List<IntrospectResponse>>builder()
                 .result(result)
                 .build();
     }
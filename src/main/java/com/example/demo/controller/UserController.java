@@ -3,16 +3,24 @@ package com.example.demo.controller;
 import com.example.demo.dto.request.ApiResponse;
 import com.example.demo.dto.request.UserCreationRequest;
 import com.example.demo.dto.request.UserUpdateRequest;
+import com.example.demo.dto.response.CursorPageResponse;
+import com.example.demo.dto.response.UserImportResponse;
 import com.example.demo.dto.response.UserResponse;
 import com.example.demo.entity.User;
+import com.example.demo.service.UserImportService;
 import com.example.demo.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/users")
@@ -21,6 +29,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     @PostMapping
     ApiResponse<UserResponse> createUser(@RequestBody @Valid UserCreationRequest request){
         return ApiResponse.<UserResponse>builder()
@@ -28,18 +39,34 @@ public class UserController {
                 .build();
     }
 
+    // CSV with a header row, or NDJSON; a bad row is reported instead of failing the whole upload
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    ApiResponse<UserImportResponse> importUsers(HttpServletRequest request) throws IOException {
+        return ApiResponse.<UserImportResponse>builder()
+                .result(userImportService.importUsers(MediaType.parseMediaType(request.getContentType()), request.getInputStream()))
+                .build();
+    }
+
     @GetMapping()
-    ApiResponse<List<UserResponse>> getUsers(){
+    ApiResponse<CursorPageResponse<UserResponse>> getUsers(@RequestParam(required = false) String after,
+                                                         @RequestParam(defaultValue = "50") int size){
         var test = SecurityContextHolder.getContext().getAuthentication();
         log.info("username: {}", test.getName());
         test.getAuthorities().forEach(a -> log.info(a.getAuthority()));
 
 
-        return ApiResponse.<List<UserResponse>>builder()
-                .result(userService.getUsers())
+        return ApiResponse.<CursorPageResponse<UserResponse>>builder()
+                .result(userService.getUsers(after, size))
                 .build();
     }
 
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    ResponseEntity<StreamingResponseBody> streamUsers(){
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(userService.streamUsers());
+    }
+
     @GetMapping("/{userId}")
     UserResponse getUser(@PathVariable("userId") String userId){
         return  userService.getUser(userId);
@@ -0,0 +1,9 @@
+package com.example.demo.dto.projection;
+
+// One row of the user / role / permission join, role and permission are null when missing
+public interface UserAuthorityRow {
+    String getUsername();
+    String getPassword();
+    String getRole();
+    String getPermission();
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto.projection;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserCredentials {
+    String username;
+    String password;
+    // role name -> permission names
+    Map<String, List<String>> roles;
+}
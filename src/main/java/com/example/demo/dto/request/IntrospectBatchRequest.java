@@ -0,0 +1,16 @@
+package com.example.demo.dto.request;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class IntrospectBatchRequest {
+    // Cac token can verify, ket qua tra ve theo dung thu tu
+    List<String> tokens;
+}
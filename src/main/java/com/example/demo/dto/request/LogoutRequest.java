@@ -10,4 +10,6 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class LogoutRequest {
     String token;
+    // optional, revokes every refresh token issued from the same login; the sid claim of token already does
+    String refreshToken;
 }
@@ -9,5 +9,7 @@ import lombok.experimental.FieldDefaults;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class RefreshRequest {
+    // access token, for clients that do not use refresh tokens
     String token;
+    String refreshToken;
 }
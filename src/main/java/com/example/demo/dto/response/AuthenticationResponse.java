@@ -10,5 +10,7 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class AuthenticationResponse {
     String token;
+    // single use, exchange it at /auth/refresh for a new access token and a new refresh token
+    String refreshToken;
     boolean authenticate;
 }
@@ -1,14 +1,35 @@
 package com.example.demo.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
+// RFC 7662 token introspection response, claims are only filled for active tokens
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
-
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class IntrospectResponse {
+    // same as active, kept for existing callers
     boolean valid;
+    boolean active;
+    String sub;
+    String scope;
+    String iss;
+    String jti;
+    @JsonProperty("token_type")
+    String tokenType;
+    // epoch seconds
+    Long iat;
+    Long exp;
+    // seconds until exp
+    @JsonProperty("expires_in")
+    Long expiresIn;
+
+    public static IntrospectResponse inactive() {
+        return IntrospectResponse.builder().valid(false).active(false).build();
+    }
 }
@@ -0,0 +1,19 @@
+package com.example.demo.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserImportResponse {
+    int total;
+    int created;
+    int failed;
+    // rejected rows in input order, only the first users.import.max-reported-failures; failed counts them all
+    List<UserImportRowResult> failures;
+}
@@ -0,0 +1,20 @@
+package com.example.demo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportRowResult {
+    // line number in the uploaded file, the CSV header being line 1
+    int line;
+    String username;
+    // ErrorCode the row was rejected with
+    int code;
+    String message;
+}
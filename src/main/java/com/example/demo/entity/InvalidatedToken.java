@@ -2,8 +2,14 @@ package com.example.demo.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
 
 import java.util.Date;
 
@@ -13,8 +19,27 @@ import java.util.Date;
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
-public class InvalidatedToken {
+@Table(indexes = @Index(name = "idx_invalidated_token_expiry_time", columnList = "expiryTime"))
+public class InvalidatedToken implements Persistable<String> {
     @Id
     String id;
     Date expiryTime;
+
+    // ids are assigned JTIs: a token built in memory is persisted instead of letting save() merge with a select
+    // per row, while one read from or already written to the table is not new, so delete() still removes it
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean stored;
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
 }
@@ -0,0 +1,49 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Persistable;
+
+import java.util.Date;
+
+// every refresh token issued from one login; only the token of the current generation can be used
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Entity
+@Table(indexes = @Index(name = "idx_refresh_token_family_expiry_time", columnList = "expiryTime"))
+public class RefreshTokenFamily implements Persistable<String> {
+    @Id
+    String id;
+    String username;
+    int generation;
+    boolean revoked;
+    Date expiryTime;
+
+    // ids are generated before saving: a family built in memory is persisted instead of letting save() merge with
+    // a select, while one read from or already written to the table is not new, so save() updates it
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    boolean stored;
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
+}
@@ -15,6 +15,10 @@ public enum ErrorCode {
     UNAUTHENTICATED(1006, "Unauthenticated !!!", HttpStatus.UNAUTHORIZED),
     UNAUTHORIZED(1007, "You do not have permission !!!", HttpStatus.FORBIDDEN),
     INVALID_DOB(1008, "Invalid Dob, user must be at least {min} years old !!!", HttpStatus.BAD_REQUEST),
+    PASSWORD_HASHING_BUSY(1009, "Too many password checks in progress, please try again later !!!", HttpStatus.SERVICE_UNAVAILABLE),
+    INTROSPECT_BATCH_TOO_LARGE(1010, "Too many tokens in one introspection batch !!!", HttpStatus.BAD_REQUEST),
+    TOO_MANY_LOGIN_ATTEMPTS(1011, "Too many login attempts, please try again later !!!", HttpStatus.TOO_MANY_REQUESTS),
+    IMPORT_ROW_INVALID(1012, "Import row cannot be read !!!", HttpStatus.BAD_REQUEST),
     INVALID_HEADER_JWT(9998, "INVALID_HEADER_JWT !!!", HttpStatus.UNAUTHORIZED)
     ;
     ErrorCode(int code, String message, HttpStatusCode statusCode) {
@@ -0,0 +1,14 @@
+package com.example.demo.exception;
+
+public class ThrottledException extends AppException {
+    public ThrottledException(ErrorCode errorCode, long retryAfterSeconds) {
+        super(errorCode);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    private final long retryAfterSeconds;
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
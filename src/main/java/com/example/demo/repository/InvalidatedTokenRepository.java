@@ -1,7 +1,27 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.InvalidatedToken;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
+    @Query("select t.id from InvalidatedToken t where t.id > :after order by t.id")
+    List<String> findIdsAfter(@Param("after") String after, Pageable pageable);
+
+    @Query("select t.id from InvalidatedToken t where t.expiryTime < :cutoff")
+    List<String> findExpiredIds(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    // a derived deleteByIdIn would load every row and remove them one by one, this is a single bulk delete
+    @Modifying
+    @Transactional
+    @Query("delete from InvalidatedToken t where t.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
 }
@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.RefreshTokenFamily;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+public interface RefreshTokenFamilyRepository extends JpaRepository<RefreshTokenFamily, String> {
+    // compare-and-swap on the generation: 1 when the token was the current one, 0 when reused, revoked or expired;
+    // expiryTime is left alone, the refreshable window is fixed when the family is issued at login
+    @Modifying
+    @Transactional
+    @Query("update RefreshTokenFamily f set f.generation = f.generation + 1 " +
+            "where f.id = :id and f.generation = :generation and f.revoked = false and f.expiryTime > :now")
+    int advance(@Param("id") String id, @Param("generation") int generation, @Param("now") Date now);
+
+    // an expired family is left as is: a late refresh is not a replay
+    @Modifying
+    @Transactional
+    @Query("update RefreshTokenFamily f set f.revoked = true where f.id = :id and f.revoked = false and f.expiryTime > :now")
+    int revoke(@Param("id") String id, @Param("now") Date now);
+
+    @Query("select f.username from RefreshTokenFamily f where f.id = :id")
+    Optional<String> findUsernameById(@Param("id") String id);
+
+    @Query("select f.id from RefreshTokenFamily f where f.expiryTime < :cutoff")
+    List<String> findExpiredIds(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshTokenFamily f where f.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+}
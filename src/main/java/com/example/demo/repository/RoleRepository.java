@@ -2,9 +2,15 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.Permission;
 import com.example.demo.entity.Role;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface RoleRepository extends JpaRepository<Role, String> {
+    @Override
+    @EntityGraph(attributePaths = "permissions")
+    List<Role> findAll();
 }
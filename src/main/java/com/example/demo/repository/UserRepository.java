@@ -1,13 +1,46 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.projection.UserAuthorityRow;
 import com.example.demo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User , String> {
     boolean existsUserByUsername(String username);
+
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findUsernamesIn(@Param("usernames") Collection<String> usernames);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    @Query("select u.username from User u where u.username > :after order by u.username")
+    List<String> findUsernamesAfter(@Param("after") String after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select u from User u")
+    Stream<User> streamAllBy();
+
+    // roles and their permissions come in the same query instead of two lazy loads
+    @EntityGraph(attributePaths = {"roles", "roles.permissions"})
     Optional<User> findUserByUsername(String username);
+
+    // only what authentication needs: username, password hash, role and permission names, in one round trip
+    @Query("select u.username as username, u.password as password, r.name as role, p.name as permission " +
+            "from User u left join u.roles r left join r.permissions p " +
+            "where u.username = :username order by r.name, p.name")
+    List<UserAuthorityRow> findAuthorityRowsByUsername(@Param("username") String username);
 }
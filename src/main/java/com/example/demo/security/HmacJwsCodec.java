@@ -0,0 +1,107 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-lived HS512 signer and verifier.
+ * Initialised Mac instances are pooled instead of being created for every call like MACSigner / MACVerifier do,
+ * and the constant JWS header is encoded once.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class HmacJwsCodec {
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+    private static final int MAX_POOLED_MACS = 64;
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String ENCODED_HEADER = new JWSHeader(JWSAlgorithm.HS512).toBase64URL().toString();
+
+    SecretKeySpec key;
+    Mac prototype;
+    // pooled rather than thread-local so it also pays off when requests run on virtual threads
+    ConcurrentLinkedQueue<Mac> pool = new ConcurrentLinkedQueue<>();
+    AtomicInteger pooled = new AtomicInteger();
+
+    public HmacJwsCodec(@Value("${jwt.signerKey}") String signerKey) {
+        this.key = new SecretKeySpec(signerKey.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+        this.prototype = newMac();
+    }
+
+    public String sign(JWTClaimsSet claimsSet) {
+        String signingInput = ENCODED_HEADER + '.'
+                + BASE64URL.encodeToString(claimsSet.toString().getBytes(StandardCharsets.UTF_8));
+
+        byte[] signature = mac(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + '.' + BASE64URL.encodeToString(signature);
+    }
+
+    public boolean verify(SignedJWT signedJWT) {
+        // only accept the algorithm we sign with, never let the token choose
+        if (!JWSAlgorithm.HS512.equals(signedJWT.getHeader().getAlgorithm())) {
+            return false;
+        }
+        byte[] expected = mac(signedJWT.getSigningInput());
+        return MessageDigest.isEqual(expected, signedJWT.getSignature().decode());
+    }
+
+    // MAC of a value that is not a JWS, such as a refresh token; the purpose prefix keeps it from verifying as anything else
+    public String tag(String purpose, String value) {
+        return BASE64URL.encodeToString(mac((purpose + ':' + value).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public boolean verifyTag(String purpose, String value, String tag) {
+        return MessageDigest.isEqual(tag(purpose, value).getBytes(StandardCharsets.US_ASCII), tag.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private byte[] mac(byte[] input) {
+        Mac mac = pool.poll();
+        if (mac != null) {
+            pooled.decrementAndGet();
+        } else {
+            mac = copyPrototype();
+        }
+        try {
+            return mac.doFinal(input);
+        } finally {
+            if (pooled.incrementAndGet() <= MAX_POOLED_MACS) {
+                pool.offer(mac);
+            } else {
+                pooled.decrementAndGet();
+            }
+        }
+    }
+
+    private Mac copyPrototype() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + MAC_ALGORITHM, e);
+        }
+    }
+}
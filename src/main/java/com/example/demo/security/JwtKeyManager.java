@@ -0,0 +1,265 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Signs and verifies tokens with the configured jwt.algorithm.
+ * HS512 uses the shared signerKey. RS256 / ES256 use key pairs identified by kid, whose public halves are published
+ * at /.well-known/jwks.json so resource servers can verify tokens locally instead of calling /auth/introspect.
+ * Generated key pairs rotate on a schedule; the next key is published one rotation ahead of being used, and
+ * retired keys stay published until every token they signed is past its refreshable duration.
+ * A JWK set file is reloaded on the same schedule, so instances sharing it roll over without restarting: the first
+ * private key signs, and a key dropped from the file is retired the same way. Every key must be of the type
+ * jwt.algorithm needs (RSA, or EC on its curve), anything else fails at startup and is refused on reload.
+ * Generated keys live in this process only, so a token signed by one instance fails on every other; they have to be
+ * asked for with jwt.keys.generate, which cannot be used with more than one replica, and a key pair algorithm
+ * without a JWK set fails at startup otherwise.
+ * Once on a key pair, HS512 tokens are rejected unless jwt.legacy-hs512-until is set, and only until that instant,
+ * since the shared signerKey could otherwise forge tokens forever.
+ */
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class JwtKeyManager {
+    HmacJwsCodec hmacJwsCodec;
+    JWSAlgorithm algorithm;
+    String jwkSetLocation;
+    boolean generateKeys;
+    Duration refreshableDuration;
+    // null: HS512 tokens are refused as soon as a key pair algorithm is configured
+    Instant legacyHs512Until;
+
+    // copy-on-write, index 0 signs
+    @NonFinal
+    volatile List<SigningKey> keys = List.of();
+
+    @NonFinal
+    volatile SigningKey next;
+
+    public JwtKeyManager(HmacJwsCodec hmacJwsCodec,
+                         @Value("${jwt.algorithm:HS512}") String algorithm,
+                         @Value("${jwt.keys.jwk-set-location:}") String jwkSetLocation,
+                         @Value("${jwt.keys.generate:false}") boolean generateKeys,
+                         @Value("${jwt.refreshable-duration}") long refreshableDuration,
+                         @Value("${jwt.legacy-hs512-until:}") String legacyHs512Until) {
+        this.hmacJwsCodec = hmacJwsCodec;
+        this.algorithm = JWSAlgorithm.parse(algorithm);
+        this.jwkSetLocation = jwkSetLocation;
+        this.generateKeys = generateKeys;
+        this.refreshableDuration = Duration.ofSeconds(refreshableDuration);
+        this.legacyHs512Until = StringUtils.hasText(legacyHs512Until) ? Instant.parse(legacyHs512Until) : null;
+
+        if (!isAsymmetric() && !JWSAlgorithm.HS512.equals(this.algorithm)) {
+            throw new IllegalArgumentException("Unsupported jwt.algorithm " + algorithm);
+        }
+    }
+
+    @PostConstruct
+    void init() throws JOSEException, IOException, ParseException {
+        if (!isAsymmetric()) return;
+
+        if (StringUtils.hasText(jwkSetLocation)) {
+            keys = load(List.of(), Instant.now());
+            log.info("Loaded {} signing keys from {}", keys.size(), jwkSetLocation);
+        } else if (generateKeys) {
+            keys = List.of(generate());
+            next = generate();
+            log.warn("Signing with keys generated in memory, tokens are only valid on this instance until it restarts");
+        } else {
+            throw new IllegalStateException("jwt.algorithm " + algorithm
+                    + " needs jwt.keys.jwk-set-location, or jwt.keys.generate for a single instance");
+        }
+    }
+
+    public boolean isAsymmetric() {
+        return JWSAlgorithm.Family.RSA.contains(algorithm) || JWSAlgorithm.Family.EC.contains(algorithm);
+    }
+
+    public String sign(JWTClaimsSet claimsSet) {
+        if (!isAsymmetric()) return hmacJwsCodec.sign(claimsSet);
+
+        SigningKey key = keys.get(0);
+        SignedJWT signedJWT = new SignedJWT(key.header(), claimsSet);
+        try {
+            signedJWT.sign(key.signer());
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return signedJWT.serialize();
+    }
+
+    public boolean verify(SignedJWT signedJWT) throws JOSEException {
+        JWSHeader header = signedJWT.getHeader();
+        if (JWSAlgorithm.HS512.equals(header.getAlgorithm())) {
+            if (!isAsymmetric()) return hmacJwsCodec.verify(signedJWT);
+            // after switching to a key pair, HS512 tokens issued before are only honoured during the migration window
+            return legacyHs512Until != null && Instant.now().isBefore(legacyHs512Until) && hmacJwsCodec.verify(signedJWT);
+        }
+
+        for (SigningKey key : keys) {
+            if (Objects.equals(key.jwk().getKeyID(), header.getKeyID())
+                    && Objects.equals(key.header().getAlgorithm(), header.getAlgorithm())) {
+                return signedJWT.verify(key.verifier());
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> publicJwkSet() {
+        List<JWK> published = new ArrayList<>();
+        keys.forEach(key -> published.add(key.jwk().toPublicJWK()));
+        SigningKey upcoming = next;
+        if (upcoming != null) published.add(upcoming.jwk().toPublicJWK());
+        return new JWKSet(published).toJSONObject();
+    }
+
+    @Scheduled(initialDelayString = "${jwt.keys.rotation-interval:86400000}",
+            fixedDelayString = "${jwt.keys.rotation-interval:86400000}")
+    public void rotate() throws JOSEException {
+        if (!isAsymmetric()) return;
+
+        Instant now = Instant.now();
+        if (StringUtils.hasText(jwkSetLocation)) {
+            try {
+                keys = load(keys, now);
+                log.info("Reloaded signing keys from {}, signing with kid {}", jwkSetLocation, keys.get(0).jwk().getKeyID());
+            } catch (IOException | ParseException | JOSEException | IllegalStateException e) {
+                log.error("Could not reload signing keys from {}, keeping the current ones", jwkSetLocation, e);
+            }
+            return;
+        }
+        if (next == null) return;
+
+        List<SigningKey> rotated = new ArrayList<>();
+        rotated.add(next);
+        for (SigningKey key : keys) {
+            SigningKey retired = retire(key, now);
+            if (retired != null) rotated.add(retired);
+        }
+
+        keys = List.copyOf(rotated);
+        next = generate();
+        log.info("Rotated signing key, now signing with kid {}", rotated.get(0).jwk().getKeyID());
+    }
+
+    // the keys of the JWK set file, followed by the current keys dropped from it until they are past retirement
+    private List<SigningKey> load(List<SigningKey> current, Instant now) throws IOException, ParseException, JOSEException {
+        List<SigningKey> loaded = new ArrayList<>();
+        for (JWK jwk : JWKSet.load(new File(jwkSetLocation)).getKeys()) {
+            checkKeyType(jwk);
+            loaded.add(new SigningKey(jwk, algorithm, null));
+        }
+        // keys that can sign first, the first one is used
+        loaded.sort((a, b) -> Boolean.compare(b.signer() != null, a.signer() != null));
+        if (loaded.isEmpty() || loaded.get(0).signer() == null) {
+            throw new IllegalStateException("No private key in " + jwkSetLocation);
+        }
+
+        Set<String> kids = new HashSet<>();
+        loaded.forEach(key -> kids.add(key.jwk().getKeyID()));
+        for (SigningKey key : current) {
+            if (kids.contains(key.jwk().getKeyID())) continue;
+            SigningKey retired = retire(key, now);
+            if (retired != null) loaded.add(retired);
+        }
+        return List.copyOf(loaded);
+    }
+
+    // null once a token signed just before retirement can no longer be refreshed
+    private SigningKey retire(SigningKey key, Instant now) {
+        SigningKey retired = key.retiredAt() == null ? key.retire(now) : key;
+        return retired.retiredAt().plus(refreshableDuration).isAfter(now) ? retired : null;
+    }
+
+    // anything else would fail with a ClassCastException or a header the key cannot sign
+    private void checkKeyType(JWK jwk) {
+        boolean matches = JWSAlgorithm.Family.RSA.contains(algorithm)
+                ? jwk instanceof RSAKey
+                : jwk instanceof ECKey ecKey && Curve.forJWSAlgorithm(algorithm).contains(ecKey.getCurve());
+        if (!matches) {
+            throw new IllegalStateException("Key " + jwk.getKeyID() + " in " + jwkSetLocation + " is a " + jwk.getKeyType()
+                    + " key, jwt.algorithm " + algorithm + " needs " + (JWSAlgorithm.Family.RSA.contains(algorithm)
+                    ? "RSA" : "EC on " + Curve.forJWSAlgorithm(algorithm)));
+        }
+    }
+
+    private SigningKey generate() throws JOSEException {
+        String kid = UUID.randomUUID().toString();
+        JWK jwk = JWSAlgorithm.Family.RSA.contains(algorithm)
+                ? new RSAKeyGenerator(2048).keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).generate()
+                : new ECKeyGenerator(Curve.forJWSAlgorithm(algorithm).iterator().next())
+                        .keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(algorithm).generate();
+        return new SigningKey(jwk, algorithm, null);
+    }
+
+    private record SigningKey(JWK jwk, JWSHeader header, JWSSigner signer, JWSVerifier verifier, Instant retiredAt) {
+        SigningKey(JWK jwk, JWSAlgorithm algorithm, Instant retiredAt) throws JOSEException {
+            this(jwk, header(jwk, algorithm), signer(jwk), verifier(jwk), retiredAt);
+        }
+
+        SigningKey retire(Instant now) {
+            return new SigningKey(jwk, header, signer, verifier, now);
+        }
+
+        // parsed back from its encoded form so the header is not re-serialised for every token
+        private static JWSHeader header(JWK jwk, JWSAlgorithm algorithm) {
+            JWSHeader header = new JWSHeader.Builder(jwk.getAlgorithm() != null ? JWSAlgorithm.parse(jwk.getAlgorithm().getName()) : algorithm)
+                    .keyID(jwk.getKeyID())
+                    .build();
+            try {
+                return JWSHeader.parse(header.toBase64URL());
+            } catch (ParseException e) {
+                return header;
+            }
+        }
+
+        private static JWSSigner signer(JWK jwk) throws JOSEException {
+            if (!jwk.isPrivate()) return null;
+            return jwk instanceof RSAKey rsaKey ? new RSASSASigner(rsaKey) : new ECDSASigner((ECKey) jwk);
+        }
+
+        private static JWSVerifier verifier(JWK jwk) throws JOSEException {
+            return jwk instanceof RSAKey rsaKey ? new RSASSAVerifier(rsaKey.toPublicJWK()) : new ECDSAVerifier(((ECKey) jwk).toPublicJWK());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.AppException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the authentication pipeline, tagged by operation, phase and outcome (SUCCESS or the ErrorCode name).
+ * identity.auth times whole operations, identity.auth.phase the steps inside them;
+ * SLO buckets come from management.metrics.distribution.slo.identity.auth.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AuthenticationMetrics {
+    public static final String OPERATION_TIMER = "identity.auth";
+    public static final String PHASE_TIMER = "identity.auth.phase";
+    public static final String SUCCESS = "SUCCESS";
+
+    MeterRegistry meterRegistry;
+
+    // avoids building a meter id on every call, decode runs for each authenticated request
+    ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public Sample start(String operation) {
+        return new Sample(operation, System.nanoTime());
+    }
+
+    public <T, E extends Exception> T phase(String operation, String phase, Step<T, E> step) throws E {
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return step.run();
+        } catch (Exception e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            record(PHASE_TIMER, operation, phase, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public static String outcome(Throwable failure) {
+        return failure instanceof AppException appException
+                ? appException.getErrorCode().name()
+                : failure.getClass().getSimpleName();
+    }
+
+    private void record(String name, String operation, String phase, String outcome, long nanos) {
+        timers.computeIfAbsent(new TimerKey(name, operation, phase, outcome), key -> {
+                    Timer.Builder builder = Timer.builder(key.name())
+                            .tag("operation", key.operation())
+                            .tag("outcome", key.outcome());
+                    if (key.phase() != null) builder.tag("phase", key.phase());
+                    return builder.register(meterRegistry);
+                })
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @FunctionalInterface
+    public interface Step<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    // one timed operation, stop() in a finally block and failed(e) in the catch before it
+    public final class Sample {
+        private final String operation;
+        private final long start;
+        private String outcome = SUCCESS;
+
+        private Sample(String operation, long start) {
+            this.operation = operation;
+            this.start = start;
+        }
+
+        public void failed(Throwable failure) {
+            outcome = outcome(failure);
+        }
+
+        public void stop() {
+            record(OPERATION_TIMER, operation, null, outcome, System.nanoTime() - start);
+        }
+    }
+
+    private record TimerKey(String name, String operation, String phase, String outcome) {
+    }
+}
@@ -1,20 +1,19 @@
 package com.example.demo.service;
 
+import com.example.demo.Mapper.UserCredentialsMapper;
+import com.example.demo.dto.projection.UserCredentials;
 import com.example.demo.dto.request.AuthenticationRequest;
+import com.example.demo.dto.request.IntrospectBatchRequest;
 import com.example.demo.dto.request.IntrospectRequest;
 import com.example.demo.dto.request.LogoutRequest;
 import com.example.demo.dto.request.RefreshRequest;
 import com.example.demo.dto.response.AuthenticationResponse;
 import com.example.demo.dto.response.IntrospectResponse;
-import com.example.demo.entity.InvalidatedToken;
-import com.example.demo.entity.User;
 import com.example.demo.exception.AppException;
 import com.example.demo.exception.ErrorCode;
-import com.example.demo.repository.InvalidatedTokenRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.JwtKeyManager;
 import com.nimbusds.jose.*;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import jakarta.validation.Valid;
@@ -24,8 +23,6 @@ import lombok.experimental.FieldDefaults;
 import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -33,7 +30,10 @@ import java.text.ParseException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
 
@@ -43,11 +43,20 @@ import java.util.UUID;
 @Slf4j
 public class AuthenticationService {
     UserRepository userRepository;
-    InvalidatedTokenRepository invalidatedTokenRepository;
-
-    @NonFinal
-    @Value("${jwt.signerKey}")
-    protected String SIGNER_KEY;
+    UserCredentialsMapper userCredentialsMapper;
+    TokenRevocationService tokenRevocationService;
+    JwtKeyManager jwtKeyManager;
+    PasswordHashingService passwordHashingService;
+    AuthenticationMetrics authenticationMetrics;
+    UsernameIndex usernameIndex;
+    OpaqueTokenStore opaqueTokenStore;
+    RefreshTokenService refreshTokenService;
+    ScopeCodec scopeCodec;
+
+    // claims shared by every token we issue
+    private static final JWTClaimsSet BASE_CLAIMS = new JWTClaimsSet.Builder()
+            .issuer("NVA.com")
+            .build();
 
     @NonFinal
     @Value("${jwt.valid-duration}")
@@ -57,138 +66,319 @@ public class AuthenticationService {
     @Value("${jwt.refreshable-duration}")
     protected long REFRESHABLE_DURATION;
 
-    public AuthenticationResponse authenticate(AuthenticationRequest request){
-        var user = userRepository.findUserByUsername(request.getUsername())
-                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
-
-        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(10);
-        String pd = user.getPassword();
-        String raw = request.getPassword();
-        boolean authenticate = passwordEncoder.matches(raw, pd);
+    // jwt: self-contained signed tokens; opaque: random handles resolved through OpaqueTokenStore
+    @NonFinal
+    @Value("${jwt.token-mode:jwt}")
+    protected String TOKEN_MODE;
 
+    // names: space-joined scope claim; bitset: ScopeCodec.CLAIM, one bit per catalog authority
+    @NonFinal
+    @Value("${jwt.scope-encoding:names}")
+    protected String SCOPE_ENCODING;
 
-        if(!authenticate) throw new AppException(ErrorCode.UNAUTHENTICATED);
+    // compatibility for clients released before refresh tokens: an unexpired access token could be traded for a new one
+    // within refreshable-duration, with no rotation or reuse detection; on for this release so upgrades keep working,
+    // every use is logged as deprecated, and it turns off by default in the next one
+    @NonFinal
+    @Value("${jwt.refresh.accept-access-token:true}")
+    protected boolean ACCEPT_ACCESS_TOKEN_REFRESH;
 
-        String token = generateToken(user);
-        return AuthenticationResponse.builder()
-                .authenticate(true)
-                .token(token)
-                .build();
+    @NonFinal
+    @Value("${jwt.introspect.max-batch-size:100}")
+    protected int MAX_INTROSPECT_BATCH_SIZE;
 
+    public AuthenticationResponse authenticate(AuthenticationRequest request){
+        var sample = authenticationMetrics.start("authenticate");
+        try {
+            // names missing from the index are unknown for sure, no query needed
+            var user = authenticationMetrics.phase("authenticate", "user_lookup", () ->
+                    usernameIndex.mightExist(request.getUsername())
+                            ? findCredentials(request.getUsername()).orElse(null)
+                            : null);
+
+            String raw = request.getPassword();
+            // unknown names still pay for a hash and get the same error, so neither timing nor response tells which usernames exist
+            boolean authenticate = authenticationMetrics.phase("authenticate", "password_check", () ->
+                    user != null
+                            ? passwordHashingService.matches(raw, user.getPassword())
+                            : passwordHashingService.matchesDummy(raw));
+
+
+            if(!authenticate) throw new AppException(ErrorCode.UNAUTHENTICATED);
+
+            // the family first, its id goes into the access token
+            String refreshToken = authenticationMetrics.phase("authenticate", "refresh_token", () ->
+                    refreshTokenService.issue(user.getUsername()));
+            String sid = refreshTokenService.familyId(refreshToken);
+            String token = authenticationMetrics.phase("authenticate", "signing", () -> generateToken(user, sid));
+            return AuthenticationResponse.builder()
+                    .authenticate(true)
+                    .token(token)
+                    .refreshToken(refreshToken)
+                    .build();
+        } catch (RuntimeException e) {
+            sample.failed(e);
+            throw e;
+        } finally {
+            sample.stop();
+        }
     }
 
-    private String generateToken(User user){
-        JWSHeader header = new JWSHeader(JWSAlgorithm.HS512);
+    String generateToken(UserCredentials user){
+        return generateToken(user, null);
+    }
 
-        JWTClaimsSet jwtClaimsSet = new JWTClaimsSet.Builder()
+    // sid: refresh token family of the login, revoked along with the token on logout
+    String generateToken(UserCredentials user, String sid){
+        var builder = new JWTClaimsSet.Builder(BASE_CLAIMS)
                 .subject(user.getUsername())
-                .issuer("NVA.com")
                 .issueTime(new Date())
                 .expirationTime(new Date(
                         Instant.now().plus(VALID_DURATION, ChronoUnit.SECONDS).toEpochMilli()
                 ))
-                .claim("scope", buildScope(user))
-                .jwtID(UUID.randomUUID().toString())
-                .build();
-
-        Payload payload = new Payload(jwtClaimsSet.toJSONObject());
-        JWSObject jwsObject = new JWSObject(header, payload);
+                .jwtID(UUID.randomUUID().toString());
+        if (sid != null) builder.claim(RefreshTokenService.SESSION_CLAIM, sid);
 
-        try {
-            jwsObject.sign(new MACSigner(SIGNER_KEY.getBytes()));
-            String token = jwsObject.serialize();
-            return token;
-        } catch (JOSEException e) {
-            throw new RuntimeException(e);
-        }
+        String scopeBits = "bitset".equalsIgnoreCase(SCOPE_ENCODING) ? scopeCodec.encode(user) : null;
+        JWTClaimsSet jwtClaimsSet = scopeBits != null
+                ? builder.claim(ScopeCodec.CLAIM, scopeBits).build()
+                : builder.claim("scope", buildScope(user)).build();
 
+        return "opaque".equalsIgnoreCase(TOKEN_MODE)
+                ? opaqueTokenStore.issue(jwtClaimsSet)
+                : jwtKeyManager.sign(jwtClaimsSet);
     }
 
     public IntrospectResponse introspect(IntrospectRequest request) throws JOSEException, ParseException {
         var token = request.getToken();
-        boolean isValid = true;
         try {
-            verifyToken(token, false);
+            return toIntrospectResponse(verifyClaims(token, false));
         } catch (AppException e){
-           isValid = false;
+            return IntrospectResponse.inactive();
         }
+    }
+
+    // results are in request order; signatures are checked in parallel and revocation with a single query
+    public List<IntrospectResponse> introspectBatch(IntrospectBatchRequest request) {
+        List<String> tokens = Objects.requireNonNullElse(request.getTokens(), List.of());
+        if (tokens.size() > MAX_INTROSPECT_BATCH_SIZE) throw new AppException(ErrorCode.INTROSPECT_BATCH_TOO_LARGE);
+
+        List<JWTClaimsSet> verified = tokens.parallelStream()
+                .map(this::verifiedClaims)
+                .toList();
+
+        Set<String> revoked = tokenRevocationService.revokedAmong(verified.stream()
+                .filter(Objects::nonNull)
+                .map(JWTClaimsSet::getJWTID)
+                .toList());
+
+        return verified.stream()
+                .map(claims -> claims == null || revoked.contains(claims.getJWTID())
+                        ? IntrospectResponse.inactive()
+                        : toIntrospectResponse(claims))
+                .toList();
+    }
+
+    // claims already parsed by verifyToken, so callers don't have to decode the token again
+    private IntrospectResponse toIntrospectResponse(JWTClaimsSet claims) {
+        long exp = claims.getExpirationTime().toInstant().getEpochSecond();
         return IntrospectResponse.builder()
-                .valid(isValid)
+                .valid(true)
+                .active(true)
+                .sub(claims.getSubject())
+                .scope(scope(claims))
+                .iss(claims.getIssuer())
+                .jti(claims.getJWTID())
+                .tokenType("Bearer")
+                .iat(claims.getIssueTime() != null ? claims.getIssueTime().toInstant().getEpochSecond() : null)
+                .exp(exp)
+                .expiresIn(Math.max(0, exp - Instant.now().getEpochSecond()))
                 .build();
     }
 
+    // introspection always answers with the readable names, whichever encoding the token carries
+    private String scope(JWTClaimsSet claims) {
+        Object scopeBits = claims.getClaim(ScopeCodec.CLAIM);
+        return scopeBits instanceof String encoded
+                ? scopeCodec.scope(encoded)
+                : (String) claims.getClaim("scope");
+    }
+
+    // claims of a well signed, unexpired token, null otherwise; revocation is left to the caller
+    private JWTClaimsSet verifiedClaims(String token) {
+        try {
+            if (OpaqueTokenStore.isHandle(token)) return verifyHandle(token, false);
+            SignedJWT signedJWT = verifySignature(token, false);
+            return signedJWT.getJWTClaimsSet();
+        } catch (JOSEException | ParseException | RuntimeException e) {
+            return null;
+        }
+    }
+
     public AuthenticationResponse refreshToken(RefreshRequest request) throws ParseException, JOSEException {
-        SignedJWT signedToken = verifyToken(request.getToken(), true);
+        var sample = authenticationMetrics.start("refresh_token");
+        try {
+            if (request.getRefreshToken() != null) return rotate(request.getRefreshToken());
+            // a stolen access token must not work as a refresh credential
+            if (!ACCEPT_ACCESS_TOKEN_REFRESH) throw new AppException(ErrorCode.UNAUTHENTICATED);
+
+            JWTClaimsSet claims = redeem(request.getToken());
+            log.warn("Deprecated: access token refreshed for {} without a refresh token, " +
+                    "set jwt.refresh.accept-access-token=false once clients send refreshToken", claims.getSubject());
+
+            String username = claims.getSubject();
+            UserCredentials user = findCredentials(username).orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
+
+            // the new token stays tied to the login's refresh token family
+            String token = generateToken(user, claims.getStringClaim(RefreshTokenService.SESSION_CLAIM));
+            return AuthenticationResponse.builder()
+                    .token(token)
+                    .authenticate(true)
+                    .build();
+        } catch (RuntimeException | ParseException | JOSEException e) {
+            sample.failed(e);
+            throw e;
+        } finally {
+            sample.stop();
+        }
+    }
 
-        String jit = signedToken.getJWTClaimsSet().getJWTID();
-        Date expiryTime = signedToken.getJWTClaimsSet().getExpirationTime();
-        InvalidatedToken invalidatedToken = new InvalidatedToken().builder()
-                .id(jit)
-                .expiryTime(expiryTime)
-                .build();
-        invalidatedTokenRepository.save(invalidatedToken);
 
-        String username = signedToken.getJWTClaimsSet().getSubject();
-        User user = userRepository.findUserByUsername(username).orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
+    // one conditional update on the family, a replayed refresh token fails here and revokes the family
+    private AuthenticationResponse rotate(String refreshToken) {
+        var rotation = refreshTokenService.rotate(refreshToken);
+        UserCredentials user = findCredentials(rotation.username())
+                .orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
 
-        String token = generateToken(user);
         return AuthenticationResponse.builder()
-                .token(token)
+                .token(generateToken(user, rotation.familyId()))
+                .refreshToken(rotation.refreshToken())
                 .authenticate(true)
                 .build();
     }
 
-
     public void logout(LogoutRequest request) throws ParseException, JOSEException {
+        var sample = authenticationMetrics.start("logout");
         try {
-            // isRefresh = true => Khi nguoi dung logout, neu con trong tho gian refresh thi van dua xuong Invalid table
-            var signedToken = verifyToken(request.getToken(), true);
-            String jit = signedToken.getJWTClaimsSet().getJWTID();
-            Date expiryTime = signedToken.getJWTClaimsSet().getExpirationTime();
-
-            InvalidatedToken invalidatedToken = new InvalidatedToken().builder()
-                    .expiryTime(expiryTime)
-                    .id(jit)
-                    .build();
+            if (request.getRefreshToken() != null) {
+                try {
+                    refreshTokenService.revoke(request.getRefreshToken());
+                } catch (AppException exception) {
+                    log.info("Refresh token invalid !!!");
+                }
+            }
 
-            invalidatedTokenRepository.save(invalidatedToken);
+            if (request.getToken() != null) {
+                // isRefresh = true => Khi nguoi dung logout, neu con trong tho gian refresh thi van dua xuong Invalid table
+                var claims = verifyClaims(request.getToken(), true);
+                revoke(request.getToken(), claims);
+                // clients that only send the access token still end the session, not just this token
+                String sid = claims.getStringClaim(RefreshTokenService.SESSION_CLAIM);
+                if (sid != null) refreshTokenService.revokeFamily(sid);
+            }
 
         } catch (AppException exception){
+            sample.failed(exception);
             log.info("Token already expiry !!!");
+        } catch (RuntimeException | ParseException | JOSEException e) {
+            sample.failed(e);
+            throw e;
+        } finally {
+            sample.stop();
         }
     }
 
-    private SignedJWT verifyToken(String token, boolean isRefresh) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
+    // claims of a valid JWT or opaque handle
+    public JWTClaimsSet verifyClaims(String token, boolean isRefresh) throws JOSEException, ParseException {
+        return OpaqueTokenStore.isHandle(token)
+                ? verifyHandle(token, isRefresh)
+                : verifyToken(token, isRefresh).getJWTClaimsSet();
+    }
+
+    // a revoked handle is simply gone from the store, so there is nothing to check besides expiry
+    private JWTClaimsSet verifyHandle(String handle, boolean isRefresh) {
+        JWTClaimsSet claims = authenticationMetrics.phase("verify_token", "session_lookup", () -> opaqueTokenStore.get(handle));
+        return unexpired(claims, isRefresh);
+    }
+
+    // claims of a token given up for a new one; a handle is taken out of the store atomically, so a handle
+    // replayed concurrently finds nothing instead of being verified twice before either revoke lands
+    private JWTClaimsSet redeem(String token) throws JOSEException, ParseException {
+        if (OpaqueTokenStore.isHandle(token)) {
+            return unexpired(authenticationMetrics.phase("verify_token", "session_lookup", () -> opaqueTokenStore.consume(token)), true);
+        }
+
+        JWTClaimsSet claims = verifyToken(token, true).getJWTClaimsSet();
+        revoke(token, claims);
+        return claims;
+    }
 
-        SignedJWT signedJWT = SignedJWT.parse(token);
+    private JWTClaimsSet unexpired(JWTClaimsSet claims, boolean isRefresh) {
+        if (claims == null) throw new AppException(ErrorCode.UNAUTHENTICATED);
+
+        Date expirationTime = isRefresh
+                ? new Date(claims.getIssueTime().toInstant().plus(REFRESHABLE_DURATION, ChronoUnit.SECONDS).toEpochMilli())
+                : claims.getExpirationTime();
+        if (!expirationTime.after(new Date())) throw new AppException(ErrorCode.UNAUTHENTICATED);
+
+        return claims;
+    }
+
+    // a handle is dropped from the store, a JWT goes into the InvalidatedToken table
+    private void revoke(String token, JWTClaimsSet claims) {
+        if (OpaqueTokenStore.isHandle(token)) {
+            opaqueTokenStore.revoke(token);
+        } else {
+            tokenRevocationService.revoke(claims.getJWTID(), claims.getExpirationTime());
+        }
+    }
+
+    public SignedJWT verifyToken(String token, boolean isRefresh) throws JOSEException, ParseException {
+        var sample = authenticationMetrics.start("verify_token");
+        try {
+            SignedJWT signedJWT = verifySignature(token, isRefresh);
+            String jti = signedJWT.getJWTClaimsSet().getJWTID();
+
+            if (authenticationMetrics.phase("verify_token", "revocation", () -> tokenRevocationService.isRevoked(jti))){
+                throw new AppException(ErrorCode.UNAUTHENTICATED);
+            }
+
+            return signedJWT;
+        } catch (RuntimeException | ParseException | JOSEException e) {
+            sample.failed(e);
+            throw e;
+        } finally {
+            sample.stop();
+        }
+    }
+
+    private SignedJWT verifySignature(String token, boolean isRefresh) throws JOSEException, ParseException {
+        SignedJWT signedJWT = authenticationMetrics.phase("verify_token", "parse", () -> SignedJWT.parse(token));
 
         Date expirationTime = isRefresh
                 ? new Date(signedJWT.getJWTClaimsSet().getIssueTime().toInstant().plus(REFRESHABLE_DURATION, ChronoUnit.SECONDS).toEpochMilli())
                 : signedJWT.getJWTClaimsSet().getExpirationTime();
 
-        var verified = signedJWT.verify(verifier);
+        var verified = authenticationMetrics.phase("verify_token", "signature", () -> jwtKeyManager.verify(signedJWT));
 
         if(!(verified && expirationTime.after(new Date()))){
             throw new AppException(ErrorCode.UNAUTHENTICATED);
         }
 
-        if (invalidatedTokenRepository.existsById(signedJWT.getJWTClaimsSet().getJWTID())){
-            throw new AppException(ErrorCode.UNAUTHENTICATED);
-        }
-
         return signedJWT;
+    }
 
+    private Optional<UserCredentials> findCredentials(String username) {
+        return userCredentialsMapper.toUserCredentials(userRepository.findAuthorityRowsByUsername(username));
     }
 
-    private String buildScope(User user){
+    // the permissions come from the same query as the user, so they are always current
+    String buildScope(UserCredentials user){
         StringJoiner stringJoiner = new StringJoiner(" ");
         if (!CollectionUtils.isEmpty(user.getRoles())){
-            user.getRoles().forEach(role -> {
-                stringJoiner.add("ROLE_" + role.getName());
-                if (!CollectionUtils.isEmpty(role.getPermissions())) {
-                    role.getPermissions().forEach(permission -> stringJoiner.add(permission.getName()));
-                }
+            user.getRoles().forEach((role, permissions) -> {
+                stringJoiner.add("ROLE_" + role);
+                permissions.forEach(stringJoiner::add);
             });
         }
         return stringJoiner.toString();
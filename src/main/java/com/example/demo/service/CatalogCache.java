@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import com.example.demo.Mapper.PermissionMapper;
+import com.example.demo.Mapper.RoleMapper;
+import com.example.demo.dto.response.PermissionResponse;
+import com.example.demo.dto.response.RoleResponse;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.util.CatalogSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * In-memory copy of the role and permission catalogs. They change rarely, so reads are served
+ * from the snapshot and RoleService / PermissionService invalidate it on create and delete.
+ * Those only reach this instance; a change made on another replica is picked up by the reload every
+ * security.catalog.refresh-interval, which bounds how long it is served stale.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Getter
+@Slf4j
+public class CatalogCache implements MeterBinder {
+    CatalogSnapshot<List<RoleResponse>> roles;
+    CatalogSnapshot<List<PermissionResponse>> permissions;
+
+    public CatalogCache(RoleRepository roleRepository, RoleMapper roleMapper,
+                        PermissionRepository permissionRepository, PermissionMapper permissionMapper) {
+        this.roles = new CatalogSnapshot<>(() -> roleRepository.findAll().stream()
+                .map(roleMapper::toRoleResponse)
+                .toList());
+        this.permissions = new CatalogSnapshot<>(() -> permissionRepository.findAll().stream()
+                .map(permissionMapper::toPermissionResponse)
+                .toList());
+    }
+
+    @Scheduled(initialDelayString = "${security.catalog.refresh-interval:60000}",
+            fixedDelayString = "${security.catalog.refresh-interval:60000}")
+    public void reload() {
+        try {
+            roles.reload();
+            permissions.reload();
+        } catch (RuntimeException e) {
+            log.warn("Cannot reload role and permission catalogs, keep serving the current ones: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "roles", roles);
+        bind(registry, "permissions", permissions);
+    }
+
+    private static void bind(MeterRegistry registry, String catalog, CatalogSnapshot<?> snapshot) {
+        FunctionCounter.builder("identity.catalog.requests", snapshot, CatalogSnapshot::hits)
+                .tag("catalog", catalog)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("identity.catalog.requests", snapshot, CatalogSnapshot::misses)
+                .tag("catalog", catalog)
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.InvalidatedTokenRepository;
+import com.example.demo.repository.RefreshTokenFamilyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Deletes InvalidatedToken rows that can no longer be refreshed and expired refresh token families,
+ * in small chunks so the tables are never locked for long.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class InvalidatedTokenPurgeService {
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+    TokenRevocationService tokenRevocationService;
+
+    @NonFinal
+    @Value("${jwt.refreshable-duration}")
+    protected long REFRESHABLE_DURATION;
+
+    @NonFinal
+    @Value("${jwt.purge.batch-size:1000}")
+    protected int BATCH_SIZE;
+
+    @NonFinal
+    @Value("${jwt.purge.max-batches-per-run:100}")
+    protected int MAX_BATCHES_PER_RUN;
+
+    @NonFinal
+    @Value("${jwt.purge.pause-between-batches:100}")
+    protected long PAUSE_BETWEEN_BATCHES;
+
+    @NonFinal
+    @Value("${jwt.purge.interval:3600000}")
+    protected long INTERVAL;
+
+    // not @Scheduled: sleeping between batches would hold the shared scheduler thread for the whole run
+    @NonFinal
+    ScheduledExecutorService purger;
+
+    @PostConstruct
+    void startPurger() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidated-token-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::scheduledPurge, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduledPurge() {
+        // an exception escaping here would cancel every later run
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            log.warn("Scheduled purge failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void stopPurger() throws InterruptedException {
+        // interrupts the pause between batches, a run in progress stops after its current batch
+        purger.shutdownNow();
+        purger.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public void purge() {
+        // a token stays refreshable for REFRESHABLE_DURATION, keep its row at least that long after expiry
+        Date cutoff = Date.from(Instant.now().minus(REFRESHABLE_DURATION, ChronoUnit.SECONDS));
+        int removed = purge("invalidated tokens",
+                pageable -> invalidatedTokenRepository.findExpiredIds(cutoff, pageable),
+                invalidatedTokenRepository::deleteByIdIn);
+
+        // deleted ids stay in the Bloom filter until it is rebuilt
+        if (removed > 0) tokenRevocationService.rebuild();
+
+        // a family's expiry is already the end of its refreshable window
+        Date now = new Date();
+        purge("refresh token families",
+                pageable -> refreshTokenFamilyRepository.findExpiredIds(now, pageable),
+                refreshTokenFamilyRepository::deleteByIdIn);
+    }
+
+    private int purge(String what, Function<Pageable, List<String>> findExpiredIds, ToIntFunction<List<String>> deleteByIdIn) {
+        long start = System.currentTimeMillis();
+
+        int removed = 0;
+        try {
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                List<String> ids = findExpiredIds.apply(PageRequest.ofSize(BATCH_SIZE));
+                if (ids.isEmpty()) break;
+
+                removed += deleteByIdIn.applyAsInt(ids);
+                if (ids.size() < BATCH_SIZE) break;
+
+                Thread.sleep(PAUSE_BETWEEN_BATCHES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Purge of {} stopped: {}", what, e.getMessage());
+        }
+
+        log.info("Purged {} {} in {} ms", removed, what, System.currentTimeMillis() - start);
+        return removed;
+    }
+}
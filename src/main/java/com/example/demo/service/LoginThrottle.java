@@ -0,0 +1,58 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.ErrorCode;
+import com.example.demo.exception.ThrottledException;
+import com.example.demo.util.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Limits login attempts per username and per client IP before any database or BCrypt work is done.
+ * A username limit stops guessing one account's password from many addresses, the IP limit stops one address
+ * trying many accounts. Both limiters have a fixed size, so random usernames cannot grow memory.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LoginThrottle {
+    SlidingWindowRateLimiter byUsername;
+    SlidingWindowRateLimiter byIp;
+    Counter throttledByUsername;
+    Counter throttledByIp;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${security.login.throttle.window:60000}") long windowMillis,
+                         @Value("${security.login.throttle.per-username:10}") int perUsername,
+                         @Value("${security.login.throttle.per-ip:50}") int perIp,
+                         @Value("${security.login.throttle.slots:65536}") int slots) {
+        this.byUsername = new SlidingWindowRateLimiter(perUsername, windowMillis, slots);
+        this.byIp = new SlidingWindowRateLimiter(perIp, windowMillis, slots);
+        this.throttledByUsername = meterRegistry.counter("identity.login.throttled", "key", "username");
+        this.throttledByIp = meterRegistry.counter("identity.login.throttled", "key", "ip");
+    }
+
+    public void check(String username, String ip) {
+        long now = System.currentTimeMillis();
+
+        long retryAfter = byIp.tryAcquire(Objects.requireNonNullElse(ip, ""), now);
+        if (retryAfter > 0) {
+            throttledByIp.increment();
+            throw throttled(retryAfter);
+        }
+
+        retryAfter = byUsername.tryAcquire(Objects.requireNonNullElse(username, ""), now);
+        if (retryAfter > 0) {
+            throttledByUsername.increment();
+            throw throttled(retryAfter);
+        }
+    }
+
+    private static ThrottledException throttled(long retryAfterMillis) {
+        return new ThrottledException(ErrorCode.TOO_MANY_LOGIN_ATTEMPTS, (retryAfterMillis + 999) / 1000);
+    }
+}
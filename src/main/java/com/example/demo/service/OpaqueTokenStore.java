@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Server-side sessions for jwt.token-mode=opaque. The client only holds a random handle and the claims stay here,
+ * so requests carry a few dozen bytes whatever the scope, are resolved with one hash lookup, and logout is a remove.
+ * Sessions live in this instance's memory until the token can no longer be refreshed; with several instances,
+ * requests of one client must reach the instance that issued its handle.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OpaqueTokenStore implements MeterBinder {
+    private static final int HANDLE_BYTES = 32;
+    private static final Base64.Encoder HANDLE_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    SecureRandom random = new SecureRandom();
+    Cache<String, JWTClaimsSet> sessions;
+
+    public OpaqueTokenStore(@Value("${jwt.opaque.max-sessions:1000000}") long maxSessions,
+                            @Value("${jwt.refreshable-duration}") long refreshableDuration) {
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfter(new ExpireWhenNotRefreshable(Duration.ofSeconds(refreshableDuration)))
+                .recordStats()
+                .build();
+    }
+
+    // a JWT always has two dots, a handle never has one
+    public static boolean isHandle(String token) {
+        return token != null && token.indexOf('.') < 0;
+    }
+
+    public String issue(JWTClaimsSet claims) {
+        byte[] bytes = new byte[HANDLE_BYTES];
+        random.nextBytes(bytes);
+        String handle = HANDLE_ENCODER.encodeToString(bytes);
+        sessions.put(handle, claims);
+        return handle;
+    }
+
+    // null when the handle is unknown, revoked or past its refreshable duration; expiry is left to the caller
+    public JWTClaimsSet get(String handle) {
+        return sessions.getIfPresent(handle);
+    }
+
+    // removes and returns the session in one step, so of two concurrent refreshes with one handle only one gets it
+    public JWTClaimsSet consume(String handle) {
+        return sessions.asMap().remove(handle);
+    }
+
+    public void revoke(String handle) {
+        sessions.invalidate(handle);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, sessions, "opaque_sessions");
+    }
+
+    private record ExpireWhenNotRefreshable(Duration refreshableDuration) implements Expiry<String, JWTClaimsSet> {
+        @Override
+        public long expireAfterCreate(String handle, JWTClaimsSet claims, long currentTime) {
+            Instant until = claims.getIssueTime().toInstant().plus(refreshableDuration);
+            return Math.max(0, Duration.between(Instant.now(), until).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String handle, JWTClaimsSet claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String handle, JWTClaimsSet claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
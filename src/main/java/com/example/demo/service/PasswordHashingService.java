@@ -0,0 +1,151 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.AppException;
+import com.example.demo.exception.ErrorCode;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and matching on a dedicated bounded pool, so login storms cannot
+ * take every request thread's CPU. When the pool and its queue are full, calls fail fast with PASSWORD_HASHING_BUSY.
+ * The pool keeps platform threads when spring.threads.virtual.enabled is on: CPU-bound hashing on virtual threads
+ * would hold the carrier threads every request shares, while a caller waiting here unmounts cheaply.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class PasswordHashingService implements MeterBinder {
+    PasswordEncoder passwordEncoder;
+    ThreadPoolExecutor executor;
+    long timeoutMillis;
+    // hash of a random password, matched against when there is no user so the response takes as long as a real check
+    String dummyHash;
+    // hashes a bulk caller may have in the pool at once, the other threads stay free for logins
+    int bulkParallelism;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${security.password.hashing.threads:0}") int threads,
+                                  @Value("${security.password.hashing.queue-capacity:100}") int queueCapacity,
+                                  @Value("${security.password.hashing.timeout:5000}") long timeoutMillis,
+                                  @Value("${security.password.dummy-strength:${security.password.strength:10}}") int dummyStrength,
+                                  @Value("${security.password.hashing.bulk-parallelism:0}") int bulkParallelism) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.dummyHash = new BCryptPasswordEncoder(dummyStrength).encode(UUID.randomUUID().toString());
+        this.bulkParallelism = bulkParallelism > 0 ? bulkParallelism : Math.max(1, poolSize / 2);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // queue depth and active threads show how much of the password_check phase is waiting for the pool
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "password-hashing", Tags.empty()).bindTo(registry);
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // always false, costs the same as matching a password hashed with the dummy strength
+    public boolean matchesDummy(String rawPassword) {
+        execute(() -> passwordEncoder.matches(rawPassword, dummyHash));
+        return false;
+    }
+
+    public String encode(String rawPassword) {
+        return execute(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // same as encode() for each password, in order, with at most bulkParallelism of them in the pool at once;
+    // a hash the pool rejects runs on the caller instead of failing the whole batch
+    public List<String> encodeAll(List<String> rawPasswords) {
+        int size = rawPasswords.size();
+        List<Future<String>> futures = new ArrayList<>(size);
+        List<String> encoded = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                if (i >= bulkParallelism) encoded.add(await(futures.get(i - bulkParallelism)));
+
+                String rawPassword = rawPasswords.get(i);
+                try {
+                    futures.add(executor.submit(() -> passwordEncoder.encode(rawPassword)));
+                } catch (RejectedExecutionException e) {
+                    futures.add(CompletableFuture.completedFuture(passwordEncoder.encode(rawPassword)));
+                }
+            }
+            for (int i = Math.max(0, size - bulkParallelism); i < size; i++) {
+                encoded.add(await(futures.get(i)));
+            }
+            return encoded;
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Password hashing pool saturated, rejecting request");
+            throw new AppException(ErrorCode.PASSWORD_HASHING_BUSY);
+        }
+        return await(future);
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppException(ErrorCode.PASSWORD_HASHING_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.PASSWORD_HASHING_BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
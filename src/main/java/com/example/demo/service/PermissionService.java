@@ -18,19 +18,23 @@ import java.util.List;
 public class PermissionService {
     PermissionRepository permissionRepository;
     PermissionMapper permissionMapper;
+    CatalogCache catalogCache;
 
     public PermissionResponse create(PermissionRequest request){
         Permission permission = permissionMapper.toPermission(request);
         permission = permissionRepository.save(permission);
+        catalogCache.getPermissions().invalidate();
         return permissionMapper.toPermissionResponse(permission);
     };
 
     public List<PermissionResponse> getAll(){
-        var permissions = permissionRepository.findAll();
-        return permissions.stream().map(permissionMapper::toPermissionResponse).toList();
+        return catalogCache.getPermissions().get();
     }
 
     public void delete(String permissionName){
         permissionRepository.deleteById(permissionName);
+        // roles embed their permissions
+        catalogCache.getPermissions().invalidate();
+        catalogCache.getRoles().invalidate();
     }
 }
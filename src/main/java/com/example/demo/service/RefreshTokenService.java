@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.RefreshTokenFamily;
+import com.example.demo.exception.AppException;
+import com.example.demo.exception.ErrorCode;
+import com.example.demo.repository.RefreshTokenFamilyRepository;
+import com.example.demo.security.HmacJwsCodec;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens. A token is familyId.generation.tag, the tag being an HMAC of the first two parts,
+ * so nothing secret is stored. Using a token moves its family to the next generation with one conditional update;
+ * presenting a token of an older generation means it was copied, and the whole family is revoked with one update.
+ * A family expires refreshable-duration after the login that issued it, however often it is rotated.
+ * Access tokens carry their family id in the sid claim, so logging out with the access token alone ends the session.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class RefreshTokenService {
+    private static final String TAG_PURPOSE = "refresh-token";
+    // claim of the access token naming the refresh token family of its login
+    public static final String SESSION_CLAIM = "sid";
+
+    RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+    HmacJwsCodec hmacJwsCodec;
+
+    @NonFinal
+    @Value("${jwt.refreshable-duration}")
+    protected long REFRESHABLE_DURATION;
+
+    public String issue(String username) {
+        RefreshTokenFamily family = refreshTokenFamilyRepository.save(RefreshTokenFamily.builder()
+                .id(UUID.randomUUID().toString())
+                .username(username)
+                .generation(0)
+                .expiryTime(expiryTime())
+                .build());
+        return token(family.getId(), 0);
+    }
+
+    public Rotation rotate(String refreshToken) {
+        ParsedToken parsed = parse(refreshToken);
+
+        Date now = new Date();
+        int advanced = refreshTokenFamilyRepository.advance(parsed.familyId(), parsed.generation(), now);
+        if (advanced == 0) {
+            // a stale generation was replayed, or the family is already revoked or expired; only a live family
+            // gets revoked, so an ordinary late refresh is not reported as reuse
+            if (refreshTokenFamilyRepository.revoke(parsed.familyId(), now) > 0) {
+                log.warn("Refresh token reuse detected, family {} revoked", parsed.familyId());
+            }
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+
+        String username = refreshTokenFamilyRepository.findUsernameById(parsed.familyId())
+                .orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
+        return new Rotation(username, parsed.familyId(), token(parsed.familyId(), parsed.generation() + 1));
+    }
+
+    public void revoke(String refreshToken) {
+        revokeFamily(parse(refreshToken).familyId());
+    }
+
+    // the family id comes from a verified sid claim, the token itself is not needed
+    public void revokeFamily(String familyId) {
+        refreshTokenFamilyRepository.revoke(familyId, new Date());
+    }
+
+    public String familyId(String refreshToken) {
+        return parse(refreshToken).familyId();
+    }
+
+    private Date expiryTime() {
+        return Date.from(Instant.now().plus(REFRESHABLE_DURATION, ChronoUnit.SECONDS));
+    }
+
+    private String token(String familyId, int generation) {
+        String value = familyId + '.' + generation;
+        return value + '.' + hmacJwsCodec.tag(TAG_PURPOSE, value);
+    }
+
+    private ParsedToken parse(String refreshToken) {
+        String[] parts = refreshToken == null ? new String[0] : refreshToken.split("\\.");
+        if (parts.length != 3 || !hmacJwsCodec.verifyTag(TAG_PURPOSE, parts[0] + '.' + parts[1], parts[2])) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+        try {
+            return new ParsedToken(parts[0], Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new AppException(ErrorCode.UNAUTHENTICATED);
+        }
+    }
+
+    public record Rotation(String username, String familyId, String refreshToken) {
+    }
+
+    private record ParsedToken(String familyId, int generation) {
+    }
+}
@@ -26,6 +26,7 @@ public class RoleService {
     RoleRepository roleRepository;
     RoleMapper roleMapper;
     PermissionRepository permissionRepository;
+    CatalogCache catalogCache;
 
     public RoleResponse create(RoleRequest request){
         Role role = roleMapper.toRole(request);
@@ -33,15 +34,18 @@ public class RoleService {
         role.setPermissions(new HashSet<>(permissions));
 
         role = roleRepository.save(role);
+        catalogCache.getRoles().invalidate();
         return roleMapper.toRoleResponse(role);
     }
 
     public List<RoleResponse> getAll(){
-        var roles = roleRepository.findAll();
-        return roles.stream().map(role -> roleMapper.toRoleResponse(role)).toList();
+        return catalogCache.getRoles().get();
     }
 
-    public void delete(String role){ roleRepository.deleteById(role); }
+    public void delete(String role){
+        roleRepository.deleteById(role);
+        catalogCache.getRoles().invalidate();
+    }
 
 
 }
@@ -0,0 +1,119 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.projection.UserCredentials;
+import com.example.demo.dto.response.PermissionResponse;
+import com.example.demo.dto.response.RoleResponse;
+import com.example.demo.util.AuthorityTable;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact form of the scope claim for jwt.scope-encoding=bitset: one bit per ROLE_x / permission name of the
+ * catalog snapshot instead of the space-joined names. The table is rebuilt when CatalogCache is invalidated,
+ * and the last few versions are kept so tokens issued just before a role or permission change still expand.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ScopeCodec {
+    // not "scp", which JwtGrantedAuthoritiesConverter would read as a list of names
+    public static final String CLAIM = "scope_bits";
+
+    private static final int KEPT_VERSIONS = 16;
+    // a token from an unknown catalog version reloads the catalog at most this often
+    private static final long RELOAD_INTERVAL_MILLIS = 5_000;
+
+    CatalogCache catalogCache;
+
+    Cache<String, AuthorityTable> tables = Caffeine.newBuilder()
+            .maximumSize(KEPT_VERSIONS)
+            .build();
+
+    @NonFinal
+    volatile Built current;
+
+    @NonFinal
+    volatile long lastReload;
+
+    // null when a name is not in the local catalog snapshot yet, the caller then falls back to the plain scope
+    public String encode(UserCredentials user) {
+        List<String> names = new ArrayList<>();
+        if (!CollectionUtils.isEmpty(user.getRoles())) {
+            user.getRoles().forEach((role, permissions) -> {
+                names.add("ROLE_" + role);
+                names.addAll(permissions);
+            });
+        }
+        return table().encode(names);
+    }
+
+    // null when the value was encoded against a catalog version this instance does not know
+    public List<GrantedAuthority> authorities(String encoded) {
+        AuthorityTable table = table(encoded);
+        return table == null ? null : table.authorities(encoded);
+    }
+
+    public String scope(String encoded) {
+        AuthorityTable table = table(encoded);
+        return table == null ? null : table.scope(encoded);
+    }
+
+    private AuthorityTable table(String encoded) {
+        String version = AuthorityTable.versionOf(encoded);
+        if (version == null) return null;
+
+        AuthorityTable table = tables.getIfPresent(version);
+        if (table != null) return table;
+
+        // issued by an instance that has seen a newer catalog than ours
+        table = table();
+        if (!table.version().equals(version) && reloadAllowed()) {
+            catalogCache.getRoles().invalidate();
+            catalogCache.getPermissions().invalidate();
+            table = table();
+        }
+        return table.version().equals(version) ? table : null;
+    }
+
+    private AuthorityTable table() {
+        List<RoleResponse> roles = catalogCache.getRoles().get();
+        List<PermissionResponse> permissions = catalogCache.getPermissions().get();
+
+        // the snapshots are replaced, never modified, so identity tells whether the catalog changed
+        Built built = current;
+        if (built != null && built.roles() == roles && built.permissions() == permissions) return built.table();
+
+        List<String> names = new ArrayList<>();
+        roles.forEach(role -> {
+            names.add("ROLE_" + role.getName());
+            if (role.getPermissions() != null) role.getPermissions().forEach(permission -> names.add(permission.getName()));
+        });
+        permissions.forEach(permission -> names.add(permission.getName()));
+
+        AuthorityTable rebuilt = new AuthorityTable(names);
+        AuthorityTable table = tables.get(rebuilt.version(), version -> rebuilt);
+        current = new Built(roles, permissions, table);
+        return table;
+    }
+
+    private boolean reloadAllowed() {
+        long now = System.currentTimeMillis();
+        long last = lastReload;
+        if (now - last < RELOAD_INTERVAL_MILLIS) return false;
+        lastReload = now;
+        return true;
+    }
+
+    private record Built(List<RoleResponse> roles, List<PermissionResponse> permissions, AuthorityTable table) {
+    }
+}
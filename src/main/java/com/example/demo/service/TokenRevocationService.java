@@ -0,0 +1,256 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.InvalidatedToken;
+import com.example.demo.repository.InvalidatedTokenRepository;
+import com.example.demo.util.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a Bloom filter of revoked JTIs in front of the InvalidatedToken table,
+ * so a token is only looked up in the database when the filter reports a possible hit.
+ * Revocations are visible in memory at once and written to the table in batches. Once max-pending revocations
+ * wait for the database, callers write theirs themselves, so the backlog is bounded while the database keeps up.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class TokenRevocationService implements MeterBinder {
+    InvalidatedTokenRepository invalidatedTokenRepository;
+    VerifiedTokenCache verifiedTokenCache;
+
+    @NonFinal
+    @Value("${jwt.revocation.filter.expected-insertions:100000}")
+    protected long EXPECTED_INSERTIONS;
+
+    @NonFinal
+    @Value("${jwt.revocation.filter.false-positive-rate:0.01}")
+    protected double FALSE_POSITIVE_RATE;
+
+    @NonFinal
+    @Value("${jwt.revocation.filter.page-size:5000}")
+    protected int PAGE_SIZE;
+
+    @NonFinal
+    @Value("${jwt.revocation.write-behind.batch-size:100}")
+    protected int FLUSH_BATCH_SIZE;
+
+    @NonFinal
+    @Value("${jwt.revocation.write-behind.flush-interval:200}")
+    protected long FLUSH_INTERVAL;
+
+    @NonFinal
+    @Value("${jwt.revocation.write-behind.max-pending:10000}")
+    protected int MAX_PENDING;
+
+    // revoked but not yet written to the database, already visible to isRevoked
+    ConcurrentMap<String, Date> pending = new ConcurrentHashMap<>();
+    AtomicBoolean flushRequested = new AtomicBoolean();
+    // the scheduled rebuild and the one requested after a purge may run at the same time on virtual threads
+    AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @NonFinal
+    ScheduledExecutorService flusher;
+
+    // null until the first successful warm up; the database is the source of truth until then
+    @NonFinal
+    volatile BloomFilter filter;
+
+    // filter being rebuilt, revocations made during a rebuild go into both
+    @NonFinal
+    volatile BloomFilter building;
+
+    @PostConstruct
+    void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopFlusher() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public boolean isRevoked(String jti) {
+        if (pending.containsKey(jti)) return true;
+
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(jti)) {
+            return false;
+        }
+        return invalidatedTokenRepository.existsById(jti);
+    }
+
+    // same answer as isRevoked for every JTI, with at most one query for all the filter hits
+    public Set<String> revokedAmong(Collection<String> jtis) {
+        Set<String> revoked = new HashSet<>();
+        List<String> candidates = new ArrayList<>();
+        for (String jti : jtis) {
+            if (pending.containsKey(jti)) revoked.add(jti);
+            else if (mightBeRevoked(jti)) candidates.add(jti);
+        }
+
+        if (!candidates.isEmpty()) {
+            invalidatedTokenRepository.findAllById(candidates).forEach(token -> revoked.add(token.getId()));
+        }
+        return revoked;
+    }
+
+    // local check only, true when the filter is not ready yet
+    public boolean mightBeRevoked(String jti) {
+        if (pending.containsKey(jti)) return true;
+
+        BloomFilter current = filter;
+        return current == null || current.mightContain(jti);
+    }
+
+    // visible immediately, written to the database by the next flush
+    public void revoke(String jti, Date expiryTime) {
+        boolean full = pending.size() >= MAX_PENDING;
+        pending.put(jti, expiryTime);
+        verifiedTokenCache.evict(jti);
+
+        if (full) {
+            // the flusher is not keeping up, write on the caller's thread; only stays pending if this fails too
+            flushOne(InvalidatedToken.builder().id(jti).expiryTime(expiryTime).build());
+            return;
+        }
+
+        if (pending.size() >= FLUSH_BATCH_SIZE && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    void flush() {
+        if (pending.isEmpty()) return;
+
+        List<InvalidatedToken> snapshot = pending.entrySet().stream()
+                .map(entry -> InvalidatedToken.builder()
+                        .id(entry.getKey())
+                        .expiryTime(entry.getValue())
+                        .build())
+                .toList();
+
+        for (int from = 0; from < snapshot.size(); from += FLUSH_BATCH_SIZE) {
+            List<InvalidatedToken> batch = snapshot.subList(from, Math.min(from + FLUSH_BATCH_SIZE, snapshot.size()));
+            try {
+                invalidatedTokenRepository.saveAll(batch);
+                batch.forEach(this::flushed);
+            } catch (RuntimeException e) {
+                // usually a JTI revoked twice, retry row by row so one duplicate does not lose the whole batch
+                log.warn("Batch insert of {} revoked tokens failed, retrying one by one: {}", batch.size(), e.getMessage());
+                batch.forEach(this::flushOne);
+            }
+        }
+    }
+
+    private void flushOne(InvalidatedToken token) {
+        try {
+            if (!invalidatedTokenRepository.existsById(token.getId())) {
+                invalidatedTokenRepository.save(token);
+            }
+            flushed(token);
+        } catch (RuntimeException e) {
+            log.warn("Cannot write revoked token {}, will retry: {}", token.getId(), e.getMessage());
+        }
+    }
+
+    private void flushed(InvalidatedToken token) {
+        markRevoked(token.getId());
+        pending.remove(token.getId());
+    }
+
+    // must only be called once the row is committed, so a concurrent rebuild either reads it or sees it here
+    void markRevoked(String jti) {
+        BloomFilter next = building;
+        if (next != null) next.put(jti);
+
+        BloomFilter current = filter;
+        if (current != null) current.put(jti);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("token_revocation_pending", pending, Map::size)
+                .description("Revoked tokens not yet written to the InvalidatedToken table")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${jwt.revocation.filter.refresh-interval:60000}",
+            fixedDelayString = "${jwt.revocation.filter.refresh-interval:60000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) return;
+
+        long start = System.currentTimeMillis();
+        BloomFilter next = null;
+        try {
+            long expected = Math.max(EXPECTED_INSERTIONS, invalidatedTokenRepository.count() * 2);
+            next = new BloomFilter(expected, FALSE_POSITIVE_RATE);
+            building = next;
+
+            long loaded = 0;
+            String after = "";
+            List<String> ids;
+            do {
+                ids = invalidatedTokenRepository.findIdsAfter(after, PageRequest.ofSize(PAGE_SIZE));
+                ids.forEach(next::put);
+                loaded += ids.size();
+                if (!ids.isEmpty()) after = ids.get(ids.size() - 1);
+            } while (ids.size() == PAGE_SIZE);
+
+            filter = next;
+            // drop cached tokens revoked by other instances since the last rebuild
+            verifiedTokenCache.evictIf(next::mightContain);
+            log.info("Revocation filter rebuilt with {} tokens in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Cannot rebuild revocation filter, keep checking the database: {}", e.getMessage());
+        } finally {
+            // never stop markRevoked from feeding a filter this rebuild did not create
+            if (building == next) building = null;
+            rebuilding.set(false);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.demo.service;
+
+import com.example.demo.Mapper.UserMapper;
+import com.example.demo.dto.request.UserCreationRequest;
+import com.example.demo.dto.response.UserImportResponse;
+import com.example.demo.dto.response.UserImportRowResult;
+import com.example.demo.entity.User;
+import com.example.demo.exception.AppException;
+import com.example.demo.exception.ErrorCode;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates users in bulk from CSV (a header row naming UserCreationRequest fields) or NDJSON (one request per line).
+ * The body is read chunk by chunk: each chunk costs one IN query for taken usernames, hashing spread over the
+ * password pool and batched inserts in their own transaction, so a failure only affects its own chunk. Rows are
+ * validated like POST /users. The report counts every row but only lists rejected ones, up to max-reported-failures,
+ * so apart from that list memory is bounded by the chunk size rather than the file.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class UserImportService {
+    private static final String MIN_ATTRIBUTE = "min";
+
+    UserRepository userRepository;
+    UserMapper userMapper;
+    PasswordHashingService passwordHashingService;
+    UsernameIndex usernameIndex;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    ObjectMapper objectMapper;
+    Validator validator;
+
+    // a multiple of hibernate.jdbc.batch_size, so every insert batch is full
+    @NonFinal
+    @Value("${users.import.chunk-size:500}")
+    protected int CHUNK_SIZE;
+
+    @NonFinal
+    @Value("${users.import.max-reported-failures:1000}")
+    protected int MAX_REPORTED_FAILURES;
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserImportResponse importUsers(MediaType contentType, InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+
+        RowParser parser;
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            parser = this::parseJson;
+        } else {
+            String header = reader.readLine();
+            lineNumber++;
+            parser = csvParser(header == null ? List.of() : splitCsv(header));
+        }
+
+        Report report = new Report(MAX_REPORTED_FAILURES);
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+
+            chunk.add(parse(lineNumber, line, parser));
+            if (chunk.size() == CHUNK_SIZE) importChunk(chunk, report);
+        }
+        importChunk(chunk, report);
+
+        log.info("Imported {} users, {} rows rejected", report.created, report.failed);
+        return UserImportResponse.builder()
+                .total(report.created + report.failed)
+                .created(report.created)
+                .failed(report.failed)
+                .failures(report.failures)
+                .build();
+    }
+
+    private void importChunk(List<Row> chunk, Report report) {
+        if (chunk.isEmpty()) return;
+
+        // a name repeated within the chunk is only created once; one from an earlier chunk is already committed
+        // and comes back from the IN query below, so nothing has to be remembered across chunks
+        Set<String> seen = new HashSet<>();
+        UserImportRowResult[] results = new UserImportRowResult[chunk.size()];
+        List<Integer> candidates = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Row row = chunk.get(i);
+            if (row.error() != null) {
+                results[i] = failed(row, row.error(), row.message());
+            } else if (!seen.add(row.request().getUsername())) {
+                results[i] = failed(row, ErrorCode.USER_EXISTED, null);
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        // one query for the whole chunk instead of existsUserByUsername per row
+        Set<String> taken = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findUsernamesIn(candidates.stream()
+                        .map(i -> chunk.get(i).request().getUsername())
+                        .toList()));
+
+        List<Integer> accepted = new ArrayList<>(candidates.size());
+        for (int i : candidates) {
+            if (taken.contains(chunk.get(i).request().getUsername())) results[i] = failed(chunk.get(i), ErrorCode.USER_EXISTED, null);
+            else accepted.add(i);
+        }
+
+        if (!accepted.isEmpty()) create(chunk, accepted, results);
+
+        // null marks a created row
+        for (UserImportRowResult result : results) {
+            if (result == null) report.created++;
+            else report.failed(result);
+        }
+        chunk.clear();
+    }
+
+    private void create(List<Row> chunk, List<Integer> accepted, UserImportRowResult[] results) {
+        List<String> hashes;
+        try {
+            hashes = passwordHashingService.encodeAll(accepted.stream()
+                    .map(i -> chunk.get(i).request().getPassword())
+                    .toList());
+        } catch (AppException e) {
+            accepted.forEach(i -> results[i] = failed(chunk.get(i), e.getErrorCode(), null));
+            return;
+        }
+
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int j = 0; j < accepted.size(); j++) {
+            User user = userMapper.toUser(chunk.get(accepted.get(j)).request());
+            user.setPassword(hashes.get(j));
+            users.add(user);
+        }
+
+        ErrorCode[] errors = save(users);
+        for (int j = 0; j < accepted.size(); j++) {
+            Row row = chunk.get(accepted.get(j));
+            if (errors[j] == null) {
+                usernameIndex.add(row.request().getUsername());
+            } else {
+                results[accepted.get(j)] = failed(row, errors[j], null);
+            }
+        }
+    }
+
+    // inserts go out in hibernate.jdbc.batch_size batches; if the chunk fails it is retried row by row
+    // so one bad row does not reject the others; null marks a saved user
+    private ErrorCode[] save(List<User> users) {
+        ErrorCode[] errors = new ErrorCode[users.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAll(users));
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} imported users failed, retrying one by one: {}", users.size(), e.getMessage());
+            entityManager.clear();
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                user.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+                } catch (DataIntegrityViolationException rowException) {
+                    // the name was free when the chunk was checked, another request created it since
+                    errors[i] = ErrorCode.USER_EXISTED;
+                    entityManager.clear();
+                } catch (RuntimeException rowException) {
+                    log.warn("Cannot import user {}: {}", user.getUsername(), rowException.getMessage());
+                    errors[i] = ErrorCode.UNCATEGORIZED_EXCEPTION;
+                    entityManager.clear();
+                }
+            }
+        }
+        // with open-in-view the request's persistence context would otherwise keep every imported user
+        entityManager.clear();
+        return errors;
+    }
+
+    private Row parse(int lineNumber, String line, RowParser parser) {
+        UserCreationRequest request;
+        try {
+            request = parser.parse(line);
+        } catch (JsonProcessingException | IllegalArgumentException | DateTimeParseException e) {
+            return new Row(lineNumber, null, ErrorCode.IMPORT_ROW_INVALID, null);
+        }
+        if (request == null) return new Row(lineNumber, null, ErrorCode.IMPORT_ROW_INVALID, null);
+
+        // same rules as POST /users, plus the two fields the constraints leave optional
+        if (request.getUsername() == null) return new Row(lineNumber, request, ErrorCode.USERNAME_INVALID, null);
+        if (request.getPassword() == null) return new Row(lineNumber, request, ErrorCode.PASSWORD_INVALID, null);
+
+        Set<ConstraintViolation<UserCreationRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) return new Row(lineNumber, request, null, null);
+
+        ConstraintViolation<UserCreationRequest> violation = violations.iterator().next();
+        ErrorCode errorCode;
+        try {
+            errorCode = ErrorCode.valueOf(violation.getMessage());
+        } catch (IllegalArgumentException e) {
+            errorCode = ErrorCode.INVALID_KEY;
+        }
+        Object min = violation.getConstraintDescriptor().getAttributes().get(MIN_ATTRIBUTE);
+        String message = min == null ? null : errorCode.getMessage().replace("{" + MIN_ATTRIBUTE + "}", String.valueOf(min));
+        return new Row(lineNumber, request, errorCode, message);
+    }
+
+    private UserCreationRequest parseJson(String line) throws JsonProcessingException {
+        return objectMapper.readValue(line, UserCreationRequest.class);
+    }
+
+    private RowParser csvParser(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        return line -> {
+            List<String> fields = splitCsv(line);
+            String dob = field(fields, columns, "dob");
+            return UserCreationRequest.builder()
+                    .username(field(fields, columns, "username"))
+                    .password(field(fields, columns, "password"))
+                    .firstName(field(fields, columns, "firstname"))
+                    .lastName(field(fields, columns, "lastname"))
+                    .dob(dob == null ? null : LocalDate.parse(dob))
+                    .build();
+        };
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) return null;
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 on a single line: quoted fields may hold commas and doubled quotes, but not line breaks
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        UserCreationRequest parse(String line) throws JsonProcessingException;
+    }
+
+    // error is null for a row that passed parsing and validation
+    private record Row(int line, UserCreationRequest request, ErrorCode error, String message) {
+    }
+
+    // counts every row, keeps the first rejected ones for the response
+    private static final class Report {
+        final int maxFailures;
+        final List<UserImportRowResult> failures = new ArrayList<>();
+        int created;
+        int failed;
+
+        Report(int maxFailures) {
+            this.maxFailures = maxFailures;
+        }
+
+        void failed(UserImportRowResult result) {
+            failed++;
+            if (failures.size() < maxFailures) failures.add(result);
+        }
+    }
+
+    private static UserImportRowResult failed(Row row, ErrorCode errorCode, String message) {
+        return UserImportRowResult.builder()
+                .line(row.line())
+                .username(row.request() == null ? null : row.request().getUsername())
+                .code(errorCode.getCode())
+                .message(message != null ? message : errorCode.getMessage())
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo.service;
 import com.example.demo.Mapper.UserMapper;
 import com.example.demo.dto.request.UserCreationRequest;
 import com.example.demo.dto.request.UserUpdateRequest;
+import com.example.demo.dto.response.CursorPageResponse;
 import com.example.demo.dto.response.UserResponse;
 import com.example.demo.entity.User;
 import com.example.demo.enums.Role;
@@ -10,21 +11,29 @@ import com.example.demo.exception.AppException;
 import com.example.demo.exception.ErrorCode;
 import com.example.demo.repository.RoleRepository;
 import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.Mapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -34,26 +43,72 @@ public class UserService {
     UserRepository userRepository;
     UserMapper userMapper;
     RoleRepository roleRepository;
-    PasswordEncoder passwordEncoder;
+    PasswordHashingService passwordHashingService;
+    UsernameIndex usernameIndex;
+    TransactionTemplate transactionTemplate;
+    EntityManager entityManager;
+    ObjectMapper objectMapper;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 100;
     public UserResponse createUser(UserCreationRequest request){
         if(userRepository.existsUserByUsername(request.getUsername())){
             throw new AppException(ErrorCode.USER_EXISTED);
         }
         User user = userMapper.toUser(request);
         //Encode password
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
 
         HashSet<String> roles = new HashSet<>();
         roles.add(Role.USER.name());
 //        user.setRoles(roles);
 
         user = userRepository.save(user);
+        usernameIndex.add(user.getUsername());
         return userMapper.toUserResponse(user);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserResponse> getUsers(){
-        return userRepository.findAll().stream().map(userMapper::toUserResponse).toList();
+    public CursorPageResponse<UserResponse> getUsers(String after, int size){
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // one extra row tells us whether there is a next page
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(after == null ? "" : after, Limit.of(limit + 1));
+
+        boolean hasNext = users.size() > limit;
+        List<User> page = hasNext ? users.subList(0, limit) : users;
+        return CursorPageResponse.<UserResponse>builder()
+                .items(page.stream().map(userMapper::toUserResponse).toList())
+                .nextCursor(hasNext ? page.get(page.size() - 1).getId() : null)
+                .build();
+    }
+
+    // writes every user as one JSON line, the persistence context is cleared per chunk so memory stays flat
+    @PreAuthorize("hasRole('ADMIN')")
+    public StreamingResponseBody streamUsers(){
+        return outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<User> users = userRepository.streamAllBy()) {
+                List<User> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                users.forEach(user -> {
+                    chunk.add(user);
+                    if (chunk.size() == STREAM_CHUNK_SIZE) writeChunk(chunk, outputStream);
+                });
+                writeChunk(chunk, outputStream);
+            }
+        });
+    }
+
+    private void writeChunk(List<User> chunk, OutputStream outputStream){
+        try {
+            for (User user : chunk) {
+                outputStream.write(objectMapper.writeValueAsBytes(userMapper.toUserResponse(user)));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunk.clear();
+        entityManager.clear();
     }
 
     @PostAuthorize("returnObject.username == authentication.name")
@@ -77,7 +132,7 @@ public class UserService {
         User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
         userMapper.updateUser(user, request);
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordHashingService.encode(request.getPassword()));
         var roles = roleRepository.findAllById(request.getRoles());
         user.setRoles(new HashSet<>(roles));
 
@@ -86,5 +141,6 @@ public class UserService {
 
     public void deleteUser(String userId){
         userRepository.deleteById(userId);
+        usernameIndex.removed();
     }
 }
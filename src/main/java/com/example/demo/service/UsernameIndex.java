@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.BloomFilter;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of existing usernames, so logins for names that were never registered are rejected without a query.
+ * Users created here are added at once; users created by another instance, or inserted straight into the database,
+ * are only picked up by the next rebuild and cannot log in until then. That false negative is why the index is off
+ * unless security.username-index.enabled is set, which is only safe with a single instance owning user creation.
+ * Deleted names cannot be removed from the filter and only cost a query until then; once enough deletions pile up
+ * a rebuild is started early.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class UsernameIndex {
+    UserRepository userRepository;
+
+    // off: the filter is never built and every login is looked up
+    @NonFinal
+    @Value("${security.username-index.enabled:false}")
+    protected boolean ENABLED;
+
+    @NonFinal
+    @Value("${security.username-index.expected-insertions:100000}")
+    protected long EXPECTED_INSERTIONS;
+
+    @NonFinal
+    @Value("${security.username-index.false-positive-rate:0.01}")
+    protected double FALSE_POSITIVE_RATE;
+
+    @NonFinal
+    @Value("${security.username-index.page-size:5000}")
+    protected int PAGE_SIZE;
+
+    @NonFinal
+    @Value("${security.username-index.rebuild-after-deletes:1000}")
+    protected long REBUILD_AFTER_DELETES;
+
+    AtomicLong deletesSinceRebuild = new AtomicLong();
+    AtomicBoolean rebuilding = new AtomicBoolean();
+
+    // null until the first successful build; every name may exist until then
+    @NonFinal
+    volatile BloomFilter filter;
+
+    // filter being rebuilt, names added during a rebuild go into both
+    @NonFinal
+    volatile BloomFilter building;
+
+    public boolean mightExist(String username) {
+        if (username == null) return false;
+
+        BloomFilter current = filter;
+        return current == null || current.mightContain(username);
+    }
+
+    // call once the user is saved, so a concurrent rebuild either reads it or sees it here
+    public void add(String username) {
+        BloomFilter next = building;
+        if (next != null) next.put(username);
+
+        BloomFilter current = filter;
+        if (current != null) current.put(username);
+    }
+
+    public void removed() {
+        if (deletesSinceRebuild.incrementAndGet() >= REBUILD_AFTER_DELETES) {
+            CompletableFuture.runAsync(this::rebuild);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${security.username-index.refresh-interval:60000}",
+            fixedDelayString = "${security.username-index.refresh-interval:60000}")
+    public void rebuild() {
+        if (!ENABLED || !rebuilding.compareAndSet(false, true)) return;
+
+        long start = System.currentTimeMillis();
+        long deletes = deletesSinceRebuild.get();
+        try {
+            long expected = Math.max(EXPECTED_INSERTIONS, userRepository.count() * 2);
+            BloomFilter next = new BloomFilter(expected, FALSE_POSITIVE_RATE);
+            building = next;
+
+            long loaded = 0;
+            String after = "";
+            List<String> usernames;
+            do {
+                usernames = userRepository.findUsernamesAfter(after, PageRequest.ofSize(PAGE_SIZE));
+                usernames.forEach(next::put);
+                loaded += usernames.size();
+                if (!usernames.isEmpty()) after = usernames.get(usernames.size() - 1);
+            } while (usernames.size() == PAGE_SIZE);
+
+            filter = next;
+            deletesSinceRebuild.addAndGet(-deletes);
+            log.info("Username index rebuilt with {} users in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Cannot rebuild username index, keep looking users up: {}", e.getMessage());
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+}
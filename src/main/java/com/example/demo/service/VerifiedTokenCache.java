@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of tokens that already passed signature, expiry and revocation checks.
+ * Entries expire at the token's exp claim and are evicted as soon as the token's JTI is revoked.
+ */
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class VerifiedTokenCache implements MeterBinder {
+    // keyed by the raw token: the cached Jwt keeps a reference to it anyway, so no digest has to be computed or stored
+    Cache<String, Jwt> cache;
+    ConcurrentMap<String, String> tokensByJti = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .expireAfter(new ExpireAtExpClaim())
+                // runs atomically with the eviction, so it cannot drop the index of a newer entry for the same token
+                .evictionListener((String token, Jwt jwt, RemovalCause cause) -> {
+                    if (jwt != null) tokensByJti.remove(jwt.getId(), token);
+                })
+                .build();
+    }
+
+    public Jwt get(String token) {
+        return cache.getIfPresent(token);
+    }
+
+    // callers must re-check revocation after put and evict(jwt) if needed, an evict(jti) racing with put()
+    // may remove the index before the entry exists
+    public void put(Jwt jwt) {
+        if (jwt.getId() == null || jwt.getExpiresAt() == null) return;
+
+        // index first: an entry evicted right after cache.put (size pressure, or exp only milliseconds away)
+        // then has its index removed by the listener instead of leaving one nothing would ever remove
+        tokensByJti.put(jwt.getId(), jwt.getTokenValue());
+        cache.put(jwt.getTokenValue(), jwt);
+    }
+
+    public void evict(String jti) {
+        String token = tokensByJti.remove(jti);
+        if (token != null) cache.invalidate(token);
+    }
+
+    // by token rather than through the index, so it also removes an entry whose index a racing evict already took
+    public void evict(Jwt jwt) {
+        tokensByJti.remove(jwt.getId(), jwt.getTokenValue());
+        cache.invalidate(jwt.getTokenValue());
+    }
+
+    public void evictIf(Predicate<String> jtiFilter) {
+        tokensByJti.keySet().stream().filter(jtiFilter).forEach(this::evict);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "verified_tokens");
+    }
+
+    private static class ExpireAtExpClaim implements Expiry<String, Jwt> {
+        @Override
+        public long expireAfterCreate(String token, Jwt jwt, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.util;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Numbers a fixed set of authority names so a set of them can travel as a bitset ("version.bits", bits in base64url).
+ * The version is derived from the names, so every instance holding the same catalog builds the same table
+ * and can expand what another one encoded.
+ */
+public final class AuthorityTable {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String version;
+    private final List<String> names;
+    private final Map<String, Integer> ordinals;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthorityTable(Collection<String> authorityNames) {
+        this.names = List.copyOf(new TreeSet<>(authorityNames));
+        this.ordinals = new HashMap<>(names.size() * 2);
+        List<GrantedAuthority> granted = new ArrayList<>(names.size());
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < names.size(); i++) {
+            ordinals.put(names.get(i), i);
+            granted.add(new SimpleGrantedAuthority(names.get(i)));
+            crc.update(names.get(i).getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        this.authorities = List.copyOf(granted);
+        this.version = String.format("%08x", crc.getValue());
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    // null when one of the names is not in this table
+    public String encode(Collection<String> authorityNames) {
+        BitSet bits = new BitSet(names.size());
+        for (String name : authorityNames) {
+            Integer ordinal = ordinals.get(name);
+            if (ordinal == null) return null;
+            bits.set(ordinal);
+        }
+        return version + '.' + ENCODER.encodeToString(bits.toByteArray());
+    }
+
+    // null when the value was not encoded with this table
+    public List<GrantedAuthority> authorities(String encoded) {
+        BitSet bits = bits(encoded);
+        if (bits == null) return null;
+
+        List<GrantedAuthority> granted = new ArrayList<>(bits.cardinality());
+        bits.stream().forEach(ordinal -> granted.add(authorities.get(ordinal)));
+        return granted;
+    }
+
+    // space separated names, in the same form as the plain scope claim; null when not encoded with this table
+    public String scope(String encoded) {
+        BitSet bits = bits(encoded);
+        if (bits == null) return null;
+
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        bits.stream().forEach(ordinal -> stringJoiner.add(names.get(ordinal)));
+        return stringJoiner.toString();
+    }
+
+    public static String versionOf(String encoded) {
+        int dot = encoded == null ? -1 : encoded.indexOf('.');
+        return dot < 0 ? null : encoded.substring(0, dot);
+    }
+
+    private BitSet bits(String encoded) {
+        if (encoded == null
+                || encoded.length() <= version.length()
+                || encoded.charAt(version.length()) != '.'
+                || !encoded.startsWith(version)) {
+            return null;
+        }
+        try {
+            BitSet bits = BitSet.valueOf(DECODER.decode(encoded.substring(version.length() + 1)));
+            return bits.length() <= names.size() ? bits : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Copy-on-write snapshot of a read-mostly value: readers get the current immutable copy without locking,
+ * writers call invalidate() and the next reader loads a fresh copy. reload() replaces the copy in place for
+ * changes this process did not make, keeping the current instance when nothing changed.
+ */
+public class CatalogSnapshot<T> {
+    private final Supplier<T> loader;
+    private final AtomicReference<T> value = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CatalogSnapshot(Supplier<T> loader) {
+        this.loader = loader;
+    }
+
+    public T get() {
+        T current = value.get();
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+
+        misses.increment();
+        long seen = version.get();
+        T loaded = loader.get();
+        value.set(loaded);
+        // invalidated while loading, the copy may already be stale
+        if (version.get() != seen) value.compareAndSet(loaded, null);
+        return loaded;
+    }
+
+    // readers keep being served the current copy while the new one loads; true when the value changed
+    public boolean reload() {
+        long seen = version.get();
+        T loaded = loader.get();
+        T current = value.get();
+        // callers compare snapshots by identity to tell whether the catalog changed
+        if (Objects.equals(current, loaded)) return false;
+        // invalidated while loading, leave it to the next reader
+        if (version.get() == seen) value.compareAndSet(current, loaded);
+        return true;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        value.set(null);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+}
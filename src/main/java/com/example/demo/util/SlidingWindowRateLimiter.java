@@ -0,0 +1,106 @@
+package com.example.demo.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding window rate limiter over a fixed table of counters, so memory stays the same however many keys
+ * are seen. Each key maps to one slot: a collision can only overestimate a key's rate, never let extra attempts
+ * through. Hashes are seeded per instance so colliding keys cannot be precomputed.
+ * <p>
+ * A slot packs the window number (24 bits), the count of the previous window and of the current one (20 bits each);
+ * the rate is estimated as previous * (1 - elapsed / window) + current. The limit check and the increment are a
+ * single compare-and-set on that slot, so a concurrent burst against one key is counted attempt by attempt.
+ */
+public class SlidingWindowRateLimiter {
+    private static final long COUNT_MASK = (1L << 20) - 1;
+    private static final long WINDOW_MASK = (1L << 24) - 1;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int limit;
+    private final long windowMillis;
+    private final long seed = new SecureRandom().nextLong();
+
+    public SlidingWindowRateLimiter(int limit, long windowMillis, int slots) {
+        if (limit < 1 || limit > COUNT_MASK) throw new IllegalArgumentException("limit must be between 1 and " + COUNT_MASK);
+        int size = Integer.highestOneBit(Math.max(1, slots - 1) << 1);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Counts one attempt for key unless it is over the limit.
+     * Returns 0 when the attempt is allowed, otherwise the milliseconds until the next one would be.
+     */
+    public long tryAcquire(String key, long nowMillis) {
+        long window = nowMillis / windowMillis;
+        long elapsed = nowMillis % windowMillis;
+        int index = index(hash(key));
+
+        while (true) {
+            long slot = slots.get(index);
+            long rolled = roll(slot, window);
+            if (estimate(rolled, elapsed) + 1 > limit) return retryAfter(previous(rolled), current(rolled), elapsed);
+            // limit <= COUNT_MASK, so the current count cannot overflow into the previous one
+            if (slots.compareAndSet(index, slot, rolled + 1)) return 0;
+        }
+    }
+
+    // the slot as seen in the given window: counts shift by one window, or reset when older than that
+    private static long roll(long slot, long window) {
+        long slotWindow = slot >>> 40;
+        long currentWindow = window & WINDOW_MASK;
+        if (slotWindow == currentWindow) return slot;
+        if (slotWindow == ((window - 1) & WINDOW_MASK)) return pack(currentWindow, current(slot), 0);
+        return pack(currentWindow, 0, 0);
+    }
+
+    private double estimate(long slot, long elapsed) {
+        return previous(slot) * (1 - (double) elapsed / windowMillis) + current(slot);
+    }
+
+    // time until previous * (1 - t / window) + current drops below limit again with no more attempts
+    private long retryAfter(long previous, long current, long elapsed) {
+        double room = limit - 1;
+        if (current <= room) {
+            double until = previous == 0 ? elapsed : windowMillis * (1 - (room - current) / previous);
+            return Math.max(1, (long) Math.ceil(until - elapsed));
+        }
+        double intoNextWindow = windowMillis * (1 - room / current);
+        return Math.max(1, (long) Math.ceil(windowMillis - elapsed + intoNextWindow));
+    }
+
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long pack(long window, long previous, long current) {
+        return (window << 40) | (previous << 20) | current;
+    }
+
+    private static long previous(long slot) {
+        return (slot >>> 20) & COUNT_MASK;
+    }
+
+    private static long current(long slot) {
+        return slot & COUNT_MASK;
+    }
+
+    // FNV-1a 64 bit from a random offset, followed by a murmur3 finalizer
+    private long hash(String key) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
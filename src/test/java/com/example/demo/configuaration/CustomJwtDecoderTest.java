@@ -0,0 +1,96 @@
+package com.example.demo.configuaration;
+
+import com.example.demo.entity.InvalidatedToken;
+import com.example.demo.repository.InvalidatedTokenRepository;
+import com.example.demo.security.JwtKeyManager;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.VerifiedTokenCache;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// a revoked token must stop being served from VerifiedTokenCache, however the revocation reaches this instance
+@SpringBootTest
+@TestPropertySource(value = "/test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:jwtdecoder;MODE=MYSQL;NON_KEYWORDS=USER",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+public class CustomJwtDecoderTest {
+    @Autowired
+    private CustomJwtDecoder customJwtDecoder;
+    @Autowired
+    private JwtKeyManager jwtKeyManager;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+    @SpyBean
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private final String jti = UUID.randomUUID().toString();
+    private final Date expiry = Date.from(Instant.now().plus(1, ChronoUnit.HOURS));
+
+    private String token() {
+        return jwtKeyManager.sign(new JWTClaimsSet.Builder()
+                .subject("meo100k")
+                .issueTime(new Date())
+                .expirationTime(expiry)
+                .jwtID(jti)
+                .claim("scope", "ROLE_USER")
+                .build());
+    }
+
+    @Test
+    void decode_revokedAfterCached_rejected() {
+        // GIVEN
+        String token = token();
+        Assertions.assertThat(customJwtDecoder.decode(token).getId()).isEqualTo(jti);
+        Assertions.assertThat(verifiedTokenCache.get(token)).isNotNull();
+        // WHEN
+        tokenRevocationService.revoke(jti, expiry);
+        // THEN
+        assertThrows(JwtException.class, () -> customJwtDecoder.decode(token));
+    }
+
+    @Test
+    void decode_revokedByOtherInstance_rejectedAfterRebuild() {
+        // GIVEN
+        String token = token();
+        customJwtDecoder.decode(token);
+        // WHEN
+        invalidatedTokenRepository.save(InvalidatedToken.builder().id(jti).expiryTime(expiry).build());
+        tokenRevocationService.rebuild();
+        // THEN
+        Assertions.assertThat(verifiedTokenCache.get(token)).isNull();
+        assertThrows(JwtException.class, () -> customJwtDecoder.decode(token));
+    }
+
+    @Test
+    void decode_revokedWhileFillingCache_notServedFromCache() {
+        // GIVEN
+        String token = token();
+        // the revocation lands after verification, and its evict() runs before the entry exists
+        doAnswer(invocation -> {
+            tokenRevocationService.revoke(jti, expiry);
+            return invocation.callRealMethod();
+        }).when(verifiedTokenCache).put(any());
+        // WHEN
+        customJwtDecoder.decode(token);
+        // THEN
+        Assertions.assertThat(verifiedTokenCache.get(token)).isNull();
+        assertThrows(JwtException.class, () -> customJwtDecoder.decode(token));
+    }
+}
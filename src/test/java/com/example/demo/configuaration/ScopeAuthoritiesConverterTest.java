@@ -0,0 +1,70 @@
+package com.example.demo.configuaration;
+
+import com.example.demo.service.ScopeCodec;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ScopeAuthoritiesConverterTest {
+    private final ScopeCodec scopeCodec = mock(ScopeCodec.class);
+    private final ScopeAuthoritiesConverter converter = new ScopeAuthoritiesConverter(scopeCodec, 100);
+
+    private Jwt jwt(String claim, Object value) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "HS512")
+                .claim("sub", "meo100k")
+                .claim(claim, value)
+                .build();
+    }
+
+    @Test
+    void convert_scope_splitAndCachedPerScope() {
+        var first = converter.convert(jwt("scope", "ROLE_ADMIN  USER_READ"));
+        var second = converter.convert(jwt("scope", "ROLE_ADMIN  USER_READ"));
+
+        Assertions.assertThat(first).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN", "USER_READ");
+        Assertions.assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void convert_scopeBits_expandedOnceThroughCodec() {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        when(scopeCodec.authorities("v1.AQ")).thenReturn(authorities);
+
+        var first = converter.convert(jwt(ScopeCodec.CLAIM, "v1.AQ"));
+        var second = converter.convert(jwt(ScopeCodec.CLAIM, "v1.AQ"));
+
+        Assertions.assertThat(first).containsExactlyElementsOf(authorities);
+        Assertions.assertThat(second).isSameAs(first);
+        verify(scopeCodec, times(1)).authorities("v1.AQ");
+    }
+
+    @Test
+    void convert_scopeBitsOfUnknownCatalog_noAuthoritiesAndNotCached() {
+        when(scopeCodec.authorities("v2.AQ")).thenReturn(null);
+
+        Assertions.assertThat(converter.convert(jwt(ScopeCodec.CLAIM, "v2.AQ"))).isEmpty();
+
+        // the catalog shows up, the same token gets its authorities without waiting for an eviction
+        when(scopeCodec.authorities("v2.AQ")).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        Assertions.assertThat(converter.convert(jwt(ScopeCodec.CLAIM, "v2.AQ")))
+                .extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+    }
+
+    @Test
+    void convert_scopeAsList_fallbackWithoutPrefix() {
+        var authorities = converter.convert(jwt("scope", List.of("ROLE_ADMIN", "USER_READ")));
+
+        Assertions.assertThat(authorities).extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_ADMIN", "USER_READ");
+    }
+}
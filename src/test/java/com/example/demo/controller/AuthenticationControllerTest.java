@@ -0,0 +1,63 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.response.IntrospectResponse;
+import com.example.demo.service.AuthenticationService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(value = "/test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:authcontroller;MODE=MYSQL;NON_KEYWORDS=USER",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.introspect.max-cache-age=30"})
+public class AuthenticationControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private AuthenticationService authenticationService;
+
+    private ResultActions introspect(IntrospectResponse response) throws Exception {
+        Mockito.when(authenticationService.introspect(ArgumentMatchers.any())).thenReturn(response);
+        return mockMvc.perform(MockMvcRequestBuilders.post("/auth/introspect")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content("{\"token\":\"token\"}"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    private IntrospectResponse active(long expiresIn) {
+        return IntrospectResponse.builder().valid(true).active(true).sub("meo100k").expiresIn(expiresIn).build();
+    }
+
+    @Test
+    void introspect_inactive_noStore() throws Exception {
+        introspect(IntrospectResponse.inactive())
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "no-store"))
+                .andExpect(MockMvcResultMatchers.jsonPath("result.active").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("result.sub").doesNotExist());
+    }
+
+    @Test
+    void introspect_activeExpiringSoon_cachedUntilExpiry() throws Exception {
+        introspect(active(10))
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=10, private"))
+                .andExpect(MockMvcResultMatchers.jsonPath("result.expires_in").value(10));
+    }
+
+    @Test
+    void introspect_activeLongLived_cachedAtMostMaxCacheAge() throws Exception {
+        introspect(active(3600))
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=30, private"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+public class HmacJwsCodecTest {
+    private static final String SIGNER_KEY = "gYPmxrTjx5PBnHixB62PYjm3YqsDtacmpKufCYLvKX2l+QrWOx78dEd6JZiYG/6j";
+
+    private HmacJwsCodec codec;
+    private JWTClaimsSet claimsSet;
+
+    @BeforeEach
+    void initData() {
+        codec = new HmacJwsCodec(SIGNER_KEY);
+        claimsSet = new JWTClaimsSet.Builder()
+                .subject("meo100k")
+                .issuer("NVA.com")
+                .issueTime(new Date())
+                .claim("scope", "ROLE_USER")
+                .jwtID("c551b07dea47")
+                .build();
+    }
+
+    @Test
+    void sign_validClaims_verifiedByNimbus() throws Exception {
+        SignedJWT signedJWT = SignedJWT.parse(codec.sign(claimsSet));
+
+        Assertions.assertThat(signedJWT.verify(new MACVerifier(SIGNER_KEY.getBytes(StandardCharsets.UTF_8)))).isTrue();
+        Assertions.assertThat(signedJWT.getJWTClaimsSet().getSubject()).isEqualTo("meo100k");
+    }
+
+    @Test
+    void verify_tokenSignedByNimbus_success() throws Exception {
+        SignedJWT signedJWT = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claimsSet);
+        signedJWT.sign(new MACSigner(SIGNER_KEY.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThat(codec.verify(SignedJWT.parse(signedJWT.serialize()))).isTrue();
+    }
+
+    @Test
+    void verify_otherKey_fail() throws Exception {
+        HmacJwsCodec other = new HmacJwsCodec(SIGNER_KEY.replace('g', 'h'));
+
+        Assertions.assertThat(codec.verify(SignedJWT.parse(other.sign(claimsSet)))).isFalse();
+    }
+}
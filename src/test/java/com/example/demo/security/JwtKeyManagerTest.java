@@ -0,0 +1,149 @@
+package com.example.demo.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtKeyManagerTest {
+    private static final String SIGNER_KEY = "gYPmxrTjx5PBnHixB62PYjm3YqsDtacmpKufCYLvKX2l+QrWOx78dEd6JZiYG/6j";
+
+    private final JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
+            .subject("meo100k")
+            .issueTime(new Date())
+            .jwtID("c551b07dea47")
+            .build();
+
+    @TempDir
+    Path dir;
+
+    private String jwkSetFile(JWK... keys) throws Exception {
+        Path file = dir.resolve("jwks.json");
+        Files.writeString(file, new JWKSet(List.of(keys)).toString(false));
+        return file.toString();
+    }
+
+    private JWK rsaKey(String kid) throws Exception {
+        return new RSAKeyGenerator(2048).keyID(kid).algorithm(JWSAlgorithm.RS256).generate();
+    }
+
+    private JwtKeyManager keyManager(String algorithm) throws Exception {
+        JwtKeyManager keyManager = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), algorithm, "", true, 360000, "");
+        keyManager.init();
+        return keyManager;
+    }
+
+    @Test
+    void sign_rs256_verifiedByPublishedKey() throws Exception {
+        JwtKeyManager keyManager = keyManager("RS256");
+
+        SignedJWT signedJWT = SignedJWT.parse(keyManager.sign(claimsSet));
+        var jwks = JWKSet.parse(keyManager.publicJwkSet());
+
+        Assertions.assertThat(keyManager.verify(signedJWT)).isTrue();
+        Assertions.assertThat(jwks.getKeyByKeyId(signedJWT.getHeader().getKeyID())).isNotNull();
+        Assertions.assertThat(jwks.getKeys()).noneMatch(jwk -> jwk.isPrivate());
+    }
+
+    @Test
+    void verify_afterRotation_oldTokenStillValid() throws Exception {
+        JwtKeyManager keyManager = keyManager("ES256");
+        SignedJWT before = SignedJWT.parse(keyManager.sign(claimsSet));
+
+        keyManager.rotate();
+        SignedJWT after = SignedJWT.parse(keyManager.sign(claimsSet));
+
+        Assertions.assertThat(after.getHeader().getKeyID()).isNotEqualTo(before.getHeader().getKeyID());
+        Assertions.assertThat(keyManager.verify(before)).isTrue();
+        Assertions.assertThat(keyManager.verify(after)).isTrue();
+    }
+
+    @Test
+    void verify_keyFromOtherInstance_fail() throws Exception {
+        SignedJWT signedJWT = SignedJWT.parse(keyManager("RS256").sign(claimsSet));
+
+        Assertions.assertThat(keyManager("RS256").verify(signedJWT)).isFalse();
+    }
+
+    @Test
+    void init_keyPairWithoutJwkSet_fail() {
+        JwtKeyManager keyManager = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), "RS256", "", false, 360000, "");
+
+        assertThrows(IllegalStateException.class, keyManager::init);
+    }
+
+    @Test
+    void verify_hs512AfterSwitchToKeyPair_onlyWithinLegacyWindow() throws Exception {
+        HmacJwsCodec hmacJwsCodec = new HmacJwsCodec(SIGNER_KEY);
+        SignedJWT legacy = SignedJWT.parse(hmacJwsCodec.sign(claimsSet));
+        String open = Instant.now().plus(1, ChronoUnit.HOURS).toString();
+        String closed = Instant.now().minus(1, ChronoUnit.HOURS).toString();
+
+        JwtKeyManager noWindow = new JwtKeyManager(hmacJwsCodec, "RS256", "", true, 360000, "");
+        JwtKeyManager openWindow = new JwtKeyManager(hmacJwsCodec, "RS256", "", true, 360000, open);
+        JwtKeyManager closedWindow = new JwtKeyManager(hmacJwsCodec, "RS256", "", true, 360000, closed);
+
+        Assertions.assertThat(noWindow.verify(legacy)).isFalse();
+        Assertions.assertThat(openWindow.verify(legacy)).isTrue();
+        Assertions.assertThat(closedWindow.verify(legacy)).isFalse();
+        Assertions.assertThat(keyManager("HS512").verify(legacy)).isTrue();
+    }
+
+    @Test
+    void init_keyOfOtherType_failNamingKid() throws Exception {
+        String octFile = jwkSetFile(rsaKey("signing"), new OctetSequenceKeyGenerator(256).keyID("shared-secret").generate());
+        JwtKeyManager withOct = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), "RS256", octFile, false, 360000, "");
+
+        var exception = assertThrows(IllegalStateException.class, withOct::init);
+        Assertions.assertThat(exception.getMessage()).contains("shared-secret");
+
+        JwtKeyManager rsaForEs256 = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), "ES256", jwkSetFile(rsaKey("rsa")), false, 360000, "");
+        Assertions.assertThat(assertThrows(IllegalStateException.class, rsaForEs256::init).getMessage()).contains("rsa");
+    }
+
+    @Test
+    void rotate_jwkSetFileChanged_reloadedAndOldKeyKept() throws Exception {
+        String file = jwkSetFile(rsaKey("old"));
+        JwtKeyManager keyManager = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), "RS256", file, false, 360000, "");
+        keyManager.init();
+        SignedJWT before = SignedJWT.parse(keyManager.sign(claimsSet));
+
+        jwkSetFile(rsaKey("new"));
+        keyManager.rotate();
+        SignedJWT after = SignedJWT.parse(keyManager.sign(claimsSet));
+
+        Assertions.assertThat(after.getHeader().getKeyID()).isEqualTo("new");
+        // a token signed with a key dropped from the file stays valid for refreshable-duration
+        Assertions.assertThat(keyManager.verify(before)).isTrue();
+        Assertions.assertThat(keyManager.verify(after)).isTrue();
+        Assertions.assertThat(JWKSet.parse(keyManager.publicJwkSet()).getKeys()).extracting(JWK::getKeyID)
+                .containsExactly("new", "old");
+    }
+
+    @Test
+    void rotate_jwkSetFileBroken_currentKeysKept() throws Exception {
+        String file = jwkSetFile(rsaKey("current"));
+        JwtKeyManager keyManager = new JwtKeyManager(new HmacJwsCodec(SIGNER_KEY), "RS256", file, false, 360000, "");
+        keyManager.init();
+
+        Files.writeString(Path.of(file), "{");
+        keyManager.rotate();
+
+        Assertions.assertThat(SignedJWT.parse(keyManager.sign(claimsSet)).getHeader().getKeyID()).isEqualTo("current");
+    }
+}
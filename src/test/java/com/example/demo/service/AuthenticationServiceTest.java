@@ -0,0 +1,69 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.projection.UserCredentials;
+import com.example.demo.dto.request.IntrospectBatchRequest;
+import com.example.demo.dto.response.IntrospectResponse;
+import com.example.demo.exception.AppException;
+import com.example.demo.exception.ErrorCode;
+import com.nimbusds.jwt.SignedJWT;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@TestPropertySource(value = "/test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:introspect;MODE=MYSQL;NON_KEYWORDS=USER",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.introspect.max-batch-size=3"})
+public class AuthenticationServiceTest {
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    private String token() {
+        return authenticationService.generateToken(UserCredentials.builder()
+                .username("meo100k")
+                .roles(Map.of("USER", List.of("USER_READ")))
+                .build());
+    }
+
+    @Test
+    void introspectBatch_validRevokedAndMalformed_resultsInRequestOrder() throws Exception {
+        // GIVEN
+        String valid = token();
+        String revoked = token();
+        var revokedClaims = SignedJWT.parse(revoked).getJWTClaimsSet();
+        tokenRevocationService.revoke(revokedClaims.getJWTID(), revokedClaims.getExpirationTime());
+        // WHEN
+        List<IntrospectResponse> results = authenticationService.introspectBatch(IntrospectBatchRequest.builder()
+                .tokens(List.of(revoked, valid, "not-a-token"))
+                .build());
+        // THEN
+        Assertions.assertThat(results).extracting(IntrospectResponse::isActive).containsExactly(false, true, false);
+        IntrospectResponse active = results.get(1);
+        Assertions.assertThat(active.getSub()).isEqualTo("meo100k");
+        Assertions.assertThat(active.getJti()).isEqualTo(SignedJWT.parse(valid).getJWTClaimsSet().getJWTID());
+        Assertions.assertThat(active.getScope()).isEqualTo("ROLE_USER USER_READ");
+        Assertions.assertThat(active.getExpiresIn()).isPositive();
+        // inactive entries carry no claims
+        Assertions.assertThat(results.get(0).getSub()).isNull();
+    }
+
+    @Test
+    void introspectBatch_tooManyTokens_fail() {
+        var request = IntrospectBatchRequest.builder().tokens(Collections.nCopies(4, token())).build();
+
+        var exception = assertThrows(AppException.class, () -> authenticationService.introspectBatch(request));
+
+        Assertions.assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.INTROSPECT_BATCH_TOO_LARGE);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.InvalidatedToken;
+import com.example.demo.repository.InvalidatedTokenRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@TestPropertySource(value = "/test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:purge;MODE=MYSQL;NON_KEYWORDS=USER",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.refreshable-duration=3600",
+        // several chunks per run, without waiting between them
+        "jwt.purge.batch-size=2", "jwt.purge.pause-between-batches=0"})
+public class InvalidatedTokenPurgeServiceTest {
+    @Autowired
+    private InvalidatedTokenPurgeService invalidatedTokenPurgeService;
+    @Autowired
+    private InvalidatedTokenRepository invalidatedTokenRepository;
+    @SpyBean
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void initData() {
+        invalidatedTokenRepository.deleteAll();
+        clearInvocations(tokenRevocationService);
+    }
+
+    private void revoked(String jti, long expiredSecondsAgo) {
+        invalidatedTokenRepository.save(InvalidatedToken.builder()
+                .id(jti)
+                .expiryTime(Date.from(Instant.now().minus(expiredSecondsAgo, ChronoUnit.SECONDS)))
+                .build());
+    }
+
+    @Test
+    void purge_pastRefreshableWindow_deletedInChunksAndFilterRebuilt() {
+        // GIVEN
+        for (int i = 0; i < 5; i++) revoked("old" + i, 7200);
+        // expired, but the token can still be refreshed, so its row must stay
+        revoked("refreshable", 60);
+        revoked("live", -3600);
+        // WHEN
+        invalidatedTokenPurgeService.purge();
+        // THEN
+        Assertions.assertThat(invalidatedTokenRepository.findAll()).extracting(InvalidatedToken::getId)
+                .containsExactlyInAnyOrder("refreshable", "live");
+        verify(tokenRevocationService).rebuild();
+    }
+
+    @Test
+    void purge_nothingPastRefreshableWindow_filterNotRebuilt() {
+        // GIVEN
+        revoked("refreshable", 60);
+        // WHEN
+        invalidatedTokenPurgeService.purge();
+        // THEN
+        Assertions.assertThat(invalidatedTokenRepository.count()).isEqualTo(1);
+        verify(tokenRevocationService, never()).rebuild();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.service;
+
+import com.example.demo.support.Race;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+public class OpaqueTokenStoreTest {
+    private final OpaqueTokenStore store = new OpaqueTokenStore(1000, 360000);
+
+    private final JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .subject("meo100k")
+            .issueTime(new Date())
+            .build();
+
+    @Test
+    void consume_twice_onlyFirstGetsClaims() {
+        String handle = store.issue(claims);
+
+        Assertions.assertThat(store.consume(handle)).isEqualTo(claims);
+        Assertions.assertThat(store.consume(handle)).isNull();
+        Assertions.assertThat(store.get(handle)).isNull();
+    }
+
+    @Test
+    void consume_concurrentUseOfOneHandle_onlyOneWins() throws Exception {
+        // GIVEN
+        String handle = store.issue(claims);
+        // WHEN
+        List<JWTClaimsSet> consumed = Race.run(8, () -> store.consume(handle));
+        // THEN
+        Assertions.assertThat(consumed).filteredOn(Objects::nonNull).hasSize(1);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+import com.example.demo.dto.projection.UserCredentials;
+import com.example.demo.dto.request.LogoutRequest;
+import com.example.demo.dto.request.RefreshRequest;
+import com.example.demo.entity.RefreshTokenFamily;
+import com.example.demo.exception.AppException;
+import com.example.demo.exception.ErrorCode;
+import com.example.demo.repository.RefreshTokenFamilyRepository;
+import com.example.demo.support.Race;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+@SpringBootTest
+@TestPropertySource(value = "/test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:refreshtokens;MODE=MYSQL;NON_KEYWORDS=USER",
+        "spring.jpa.hibernate.ddl-auto=create-drop", "jwt.refresh.accept-access-token=false"})
+public class RefreshTokenServiceTest {
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private RefreshTokenFamilyRepository refreshTokenFamilyRepository;
+
+    private RefreshTokenFamily expiringIn(String token, long seconds) {
+        RefreshTokenFamily family = refreshTokenFamilyRepository.findById(token.substring(0, token.indexOf('.'))).orElseThrow();
+        family.setExpiryTime(Date.from(Instant.now().plus(seconds, ChronoUnit.SECONDS)));
+        refreshTokenFamilyRepository.save(family);
+        return refreshTokenFamilyRepository.findById(family.getId()).orElseThrow();
+    }
+
+    @Test
+    void rotate_currentToken_nextGeneration() {
+        // GIVEN
+        String first = refreshTokenService.issue("alice");
+        // WHEN
+        var rotation = refreshTokenService.rotate(first);
+        var next = refreshTokenService.rotate(rotation.refreshToken());
+        // THEN
+        Assertions.assertThat(rotation.username()).isEqualTo("alice");
+        Assertions.assertThat(rotation.refreshToken()).isNotEqualTo(first);
+        Assertions.assertThat(next.username()).isEqualTo("alice");
+    }
+
+    @Test
+    void rotate_replayedToken_familyRevoked() {
+        // GIVEN
+        String first = refreshTokenService.issue("alice");
+        String second = refreshTokenService.rotate(first).refreshToken();
+        // WHEN
+        var exception = assertThrows(AppException.class, () -> refreshTokenService.rotate(first));
+        // THEN
+        Assertions.assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.UNAUTHENTICATED);
+        // the legitimate holder is logged out too, the thief and the owner cannot be told apart
+        assertThrows(AppException.class, () -> refreshTokenService.rotate(second));
+    }
+
+    @Test
+    void rotate_concurrentUseOfOneToken_onlyOneWins() throws Exception {
+        // GIVEN
+        String token = refreshTokenService.issue("alice");
+        // WHEN
+        List<String> rotated = Race.run(8, () -> {
+            try {
+                return refreshTokenService.rotate(token).refreshToken();
+            } catch (AppException e) {
+                return null;
+            }
+        }).stream().filter(Objects::nonNull).toList();
+        // THEN
+        Assertions.assertThat(rotated).hasSize(1);
+        // the losers look like a replay and revoke the family
+        assertThrows(AppException.class, () -> refreshTokenService.rotate(rotated.get(0)));
+    }
+
+    @Test
+    void rotate_nearEndOfWindow_expiryNotExtended() {
+        // GIVEN
+        String token = refreshTokenService.issue("alice");
+        RefreshTokenFamily family = expiringIn(token, 5);
+        // WHEN
+        refreshTokenService.rotate(token);
+        // THEN
+        RefreshTokenFamily rotated = refreshTokenFamilyRepository.findById(family.getId()).orElseThrow();
+        Assertions.assertThat(rotated.getGeneration()).isEqualTo(1);
+        Assertions.assertThat(rotated.getExpiryTime()).isEqualTo(family.getExpiryTime());
+    }
+
+    @Test
+    void rotate_expiredFamily_unauthenticatedWithoutRevoking() {
+        // GIVEN
+        String token = refreshTokenService.issue("alice");
+        RefreshTokenFamily family = expiringIn(token, -5);
+        // WHEN
+        var exception = assertThrows(AppException.class, () -> refreshTokenService.rotate(token));
+        // THEN
+        Assertions.assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.UNAUTHENTICATED);
+        // a late refresh is not a replay
+        Assertions.assertThat(refreshTokenFamilyRepository.findById(family.getId()).orElseThrow().isRevoked()).isFalse();
+    }
+
+    @Test
+    void rotate_forgedTag_unauthenticated() {
+        String token = refreshTokenService.issue("alice");
+        String forged = token.substring(0, token.lastIndexOf('.') + 1) + "AAAA";
+
+        assertThrows(AppException.class, () -> refreshTokenService.rotate(forged));
+        assertThrows(AppException.class, () -> refreshTokenService.rotate(token.replace(".0.", ".1.")));
+    }
+
+    @Test
+    void logout_accessTokenOnly_familyRevoked() throws Exception {
+        // GIVEN
+        String refreshToken = refreshTokenService.issue("alice");
+        String accessToken = authenticationService.generateToken(UserCredentials.builder()
+                .username("alice")
+                .roles(Map.of())
+                .build(), refreshTokenService.familyId(refreshToken));
+        // WHEN
+        authenticationService.logout(LogoutRequest.builder().token(accessToken).build());
+        // THEN
+        var exception = assertThrows(AppException.class, () -> refreshTokenService.rotate(refreshToken));
+        Assertions.assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.UNAUTHENTICATED);
+    }
+
+    @Test
+    void refreshToken_accessTokenWithoutRefreshToken_unauthenticated() {
+        // GIVEN
+        String accessToken = authenticationService.generateToken(UserCredentials.builder()
+                .username("alice")
+                .roles(Map.of())
+                .build());
+        // WHEN
+        var exception = assertThrows(AppException.class,
+                () -> authenticationService.refreshToken(RefreshRequest.builder().token(accessToken).build()));
+        // THEN
+        Assertions.assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.UNAUTHENTICATED);
+    }
+}
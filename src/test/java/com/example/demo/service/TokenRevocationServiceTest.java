@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.InvalidatedToken;
+import com.example.demo.repository.InvalidatedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TokenRevocationServiceTest {
+    private final InvalidatedTokenRepository invalidatedTokenRepository = mock(InvalidatedTokenRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Date expiry = new Date(System.currentTimeMillis() + 3_600_000);
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void initService() {
+        service = new TokenRevocationService(invalidatedTokenRepository, new VerifiedTokenCache(100));
+        service.FLUSH_BATCH_SIZE = 2;
+        // only flushed when a batch fills up or on demand
+        service.FLUSH_INTERVAL = 3_600_000;
+        service.MAX_PENDING = 4;
+        service.startFlusher();
+        service.bindTo(registry);
+    }
+
+    @AfterEach
+    void stopService() throws InterruptedException {
+        service.stopFlusher();
+    }
+
+    private double pending() {
+        return registry.get("token_revocation_pending").gauge().value();
+    }
+
+    private List<String> ids(List<InvalidatedToken> tokens) {
+        return tokens.stream().map(InvalidatedToken::getId).toList();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void revoke_batchSizeReached_writtenInOneBatch() {
+        // WHEN
+        service.revoke("a", expiry);
+        service.revoke("b", expiry);
+        // THEN
+        ArgumentCaptor<List<InvalidatedToken>> batch = ArgumentCaptor.forClass(List.class);
+        verify(invalidatedTokenRepository, timeout(5000)).saveAll(batch.capture());
+        Assertions.assertThat(ids(batch.getValue())).containsExactlyInAnyOrder("a", "b");
+        Assertions.assertThat(batch.getValue()).allMatch(InvalidatedToken::isNew);
+    }
+
+    @Test
+    void flush_batchFails_retriedRowByRow() {
+        // GIVEN
+        doThrow(new IllegalStateException("duplicate key")).when(invalidatedTokenRepository).saveAll(anyList());
+        when(invalidatedTokenRepository.existsById("a")).thenReturn(true);
+        service.FLUSH_BATCH_SIZE = 100;
+        service.revoke("a", expiry);
+        service.revoke("b", expiry);
+        // WHEN
+        service.flush();
+        // THEN
+        verify(invalidatedTokenRepository, never()).save(argThat(token -> token.getId().equals("a")));
+        verify(invalidatedTokenRepository).save(argThat(token -> token.getId().equals("b")));
+        Assertions.assertThat(pending()).isZero();
+    }
+
+    @Test
+    void flush_rowFails_keptForNextFlush() {
+        // GIVEN
+        service.FLUSH_BATCH_SIZE = 100;
+        doThrow(new IllegalStateException("duplicate key")).when(invalidatedTokenRepository).saveAll(anyList());
+        doThrow(new IllegalStateException("connection reset")).when(invalidatedTokenRepository).save(any());
+        service.revoke("a", expiry);
+        // WHEN
+        service.flush();
+        // THEN
+        Assertions.assertThat(pending()).isEqualTo(1);
+        Assertions.assertThat(service.isRevoked("a")).isTrue();
+
+        // the database is back
+        doReturn(List.of()).when(invalidatedTokenRepository).saveAll(anyList());
+        service.flush();
+        Assertions.assertThat(pending()).isZero();
+    }
+
+    @Test
+    void revoke_maxPendingReached_writtenByCaller() {
+        // GIVEN
+        service.FLUSH_BATCH_SIZE = 100;
+        for (int i = 0; i < 4; i++) service.revoke("queued" + i, expiry);
+        // WHEN
+        service.revoke("overflow", expiry);
+        // THEN
+        verify(invalidatedTokenRepository).save(argThat(token -> token.getId().equals("overflow")));
+        Assertions.assertThat(pending()).isEqualTo(4);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stopFlusher_pendingRevocations_written() throws InterruptedException {
+        // GIVEN
+        service.FLUSH_BATCH_SIZE = 100;
+        service.revoke("a", expiry);
+        service.revoke("b", expiry);
+        service.revoke("c", expiry);
+        // WHEN
+        service.stopFlusher();
+        // THEN
+        ArgumentCaptor<List<InvalidatedToken>> batch = ArgumentCaptor.forClass(List.class);
+        verify(invalidatedTokenRepository).saveAll(batch.capture());
+        Assertions.assertThat(ids(batch.getValue())).containsExactlyInAnyOrder("a", "b", "c");
+        Assertions.assertThat(pending()).isZero();
+    }
+}
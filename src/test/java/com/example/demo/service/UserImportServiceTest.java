@@ -0,0 +1,154 @@
+package com.example.demo.service;
+import com.example.demo.dto.response.UserImportResponse;
+import com.example.demo.dto.response.UserImportRowResult;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+@SpringBootTest
+@TestPropertySource(value = "/test.properties", properties = {
+        "users.import.chunk-size=2",
+        "users.import.max-reported-failures=5"})
+public class UserImportServiceTest {
+    @Autowired
+    private UserImportService userImportService;
+    @MockBean
+    private UserRepository userRepository;
+
+    // the repository as the database would answer it: names saved by earlier chunks are taken too
+    private void existingUsers(String... usernames) {
+        Set<String> existing = new HashSet<>(List.of(usernames));
+        when(userRepository.findUsernamesIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> requested = invocation.getArgument(0);
+            return requested.stream().filter(existing::contains).toList();
+        });
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> existing.add(user.getUsername()));
+            return users;
+        });
+    }
+
+    private UserImportResponse importUsers(MediaType contentType, String body) throws Exception {
+        return userImportService.importUsers(contentType, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void importUsers_csv_failedRowsReported() throws Exception {
+        // GIVEN
+        existingUsers("taken");
+        String csv = """
+                username,password,firstName,lastName,dob
+                alice,password1,Alice,"Smith, Jr.",1990-01-01
+                taken,password1,,,
+                bo,password1,,,
+                alice,password2,,,
+
+                carol,short,,,
+                dave,password1,,,not-a-date
+                erin,password1,,,
+                """;
+        // WHEN
+        UserImportResponse response = importUsers(MediaType.parseMediaType("text/csv"), csv);
+        // THEN
+        Assertions.assertThat(response.getTotal()).isEqualTo(7);
+        Assertions.assertThat(response.getCreated()).isEqualTo(2);
+        Assertions.assertThat(response.getFailed()).isEqualTo(5);
+        Assertions.assertThat(response.getFailures()).extracting(UserImportRowResult::getLine)
+                .containsExactly(3, 4, 5, 7, 8);
+        Assertions.assertThat(response.getFailures()).extracting(UserImportRowResult::getCode)
+                .containsExactly(1002, 1003, 1002, 1004, 1012);
+        Assertions.assertThat(response.getFailures().get(3).getMessage()).isEqualTo("Password must be at least 8 characters");
+        // chunks of 2 rows, only chunks with rows left after validation are queried; the repeated alice is
+        // in another chunk than the first one and is found by the query
+        verify(userRepository, times(3)).findUsernamesIn(anyCollection());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void importUsers_ndjson_success() throws Exception {
+        // GIVEN
+        existingUsers();
+        String ndjson = """
+                {"username":"frank","password":"password1","dob":"1990-01-01"}
+                {"username":"grace","password":"password1"}
+                {"username":
+                """;
+        // WHEN
+        UserImportResponse response = importUsers(MediaType.APPLICATION_NDJSON, ndjson);
+        // THEN
+        Assertions.assertThat(response.getCreated()).isEqualTo(2);
+        Assertions.assertThat(response.getFailures()).extracting(UserImportRowResult::getLine).containsExactly(3);
+        Assertions.assertThat(response.getFailures().get(0).getCode()).isEqualTo(1012);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void importUsers_rowFailsOnSave_duplicateReportedAsExisting() throws Exception {
+        // GIVEN
+        existingUsers();
+        when(userRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            // henry was created by another request after the chunk was checked
+            if (user.getUsername().equals("henry")) throw new DataIntegrityViolationException("Duplicate entry 'henry'");
+            if (user.getUsername().equals("ivy")) throw new QueryTimeoutException("Lock wait timeout exceeded");
+            return user;
+        });
+        String ndjson = """
+                {"username":"henry","password":"password1"}
+                {"username":"ivy","password":"password1"}
+                """;
+        // WHEN
+        UserImportResponse response = importUsers(MediaType.APPLICATION_NDJSON, ndjson);
+        // THEN
+        Assertions.assertThat(response.getCreated()).isZero();
+        Assertions.assertThat(response.getFailures()).extracting(UserImportRowResult::getCode).containsExactly(1002, 9999);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void importUsers_moreFailuresThanReported_allCounted() throws Exception {
+        // GIVEN
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 7; i++) ndjson.append("{\"username\":\"user").append(i).append("\",\"password\":\"short\"}\n");
+        // WHEN
+        UserImportResponse response = importUsers(MediaType.APPLICATION_NDJSON, ndjson.toString());
+        // THEN
+        Assertions.assertThat(response.getTotal()).isEqualTo(7);
+        Assertions.assertThat(response.getFailed()).isEqualTo(7);
+        Assertions.assertThat(response.getFailures()).extracting(UserImportRowResult::getLine).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    @WithMockUser(username = "bob")
+    void importUsers_notAdmin_denied() {
+        assertThrows(AccessDeniedException.class,
+                () -> importUsers(MediaType.APPLICATION_NDJSON, "{\"username\":\"frank\",\"password\":\"password1\"}"));
+    }
+}
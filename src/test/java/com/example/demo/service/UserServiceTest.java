@@ -11,14 +11,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.TestPropertySource;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 @Slf4j
 @SpringBootTest
@@ -100,4 +105,47 @@ public class UserServiceTest {
 
         Assertions.assertThat(exception.getErrorCode().getCode()).isEqualTo(1005);
     }
-}
\ No newline at end of file
+
+    private List<User> users(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> User.builder().id(String.format("id-%04d", i)).username("user" + i).build())
+                .toList();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void getUsers_moreRowsThanSize_cursorIsLastItem() {
+        // GIVEN
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(""), eq(Limit.of(3)))).thenReturn(users(3));
+        // WHEN
+        var response = userService.getUsers(null, 2);
+        // THEN
+        Assertions.assertThat(response.getItems()).extracting(UserResponse::getId).containsExactly("id-0000", "id-0001");
+        Assertions.assertThat(response.getNextCursor()).isEqualTo("id-0001");
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void getUsers_lastPage_noCursor() {
+        // GIVEN
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq("id-0001"), eq(Limit.of(3)))).thenReturn(users(2));
+        // WHEN
+        var response = userService.getUsers("id-0001", 2);
+        // THEN
+        Assertions.assertThat(response.getItems()).hasSize(2);
+        Assertions.assertThat(response.getNextCursor()).isNull();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"ADMIN"})
+    void getUsers_sizeAboveMax_cappedAt500() {
+        // GIVEN
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(anyString(), any(Limit.class))).thenReturn(users(501));
+        // WHEN
+        var response = userService.getUsers(null, 10_000);
+        // THEN
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc("", Limit.of(501));
+        Assertions.assertThat(response.getItems()).hasSize(500);
+        Assertions.assertThat(response.getNextCursor()).isEqualTo("id-0499");
+    }
+}
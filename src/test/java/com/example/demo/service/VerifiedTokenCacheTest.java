@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+public class VerifiedTokenCacheTest {
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+    private Jwt jwt(String jti, Instant expiresAt) {
+        return Jwt.withTokenValue("token-" + jti)
+                .header("alg", "HS512")
+                .jti(jti)
+                .issuedAt(expiresAt.minus(1, ChronoUnit.HOURS))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    private Object field(String name) throws Exception {
+        var field = VerifiedTokenCache.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(cache);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> index() throws Exception {
+        return (Map<String, String>) field("tokensByJti");
+    }
+
+    @Test
+    void put_expiredOnArrival_noIndexLeft() throws Exception {
+        // GIVEN expireAfterCreate is 0, the entry is evicted on the next maintenance run
+        cache.put(jwt("a", Instant.now().minusMillis(1)));
+
+        // WHEN
+        ((Cache<?, ?>) field("cache")).cleanUp();
+
+        // THEN
+
+        Assertions.assertThat(cache.get("token-a")).isNull();
+        Assertions.assertThat(index()).doesNotContainKey("a");
+    }
+
+    @Test
+    void evict_indexAlreadyTakenByRacingEvict_entryRemoved() throws Exception {
+        // GIVEN
+        Jwt jwt = jwt("b", Instant.now().plus(1, ChronoUnit.HOURS));
+        cache.put(jwt);
+        index().remove("b");
+
+        // WHEN
+        cache.evict(jwt);
+
+        // THEN
+
+        Assertions.assertThat(cache.get("token-b")).isNull();
+    }
+}
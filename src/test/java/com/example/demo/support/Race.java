@@ -0,0 +1,38 @@
+package com.example.demo.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// runs the same attempt on several threads released together, for "exactly one wins" assertions
+public final class Race {
+    private Race() {
+    }
+
+    // results in submission order, null where an attempt returned null
+    public static <T> List<T> run(int threads, Callable<T> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> attempts = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.call();
+                }));
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : attempts) {
+            results.add(future.get());
+        }
+        return results;
+    }
+}
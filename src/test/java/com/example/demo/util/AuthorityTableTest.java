@@ -0,0 +1,66 @@
+package com.example.demo.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class AuthorityTableTest {
+    private static final List<String> CATALOG = List.of("ROLE_ADMIN", "ROLE_USER", "APPROVE_POST", "CREATE_DATA", "UPDATE_DATA");
+
+    @Test
+    void authorities_encodedNames_sameNames() {
+        AuthorityTable table = new AuthorityTable(CATALOG);
+
+        String encoded = table.encode(List.of("ROLE_USER", "UPDATE_DATA", "APPROVE_POST"));
+
+        Assertions.assertThat(table.authorities(encoded))
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "UPDATE_DATA", "APPROVE_POST");
+        Assertions.assertThat(table.scope(encoded).split(" "))
+                .containsExactlyInAnyOrder("ROLE_USER", "UPDATE_DATA", "APPROVE_POST");
+    }
+
+    @Test
+    void encode_largeCatalog_smallerThanNames() {
+        List<String> catalog = IntStream.range(0, 500).mapToObj(i -> "PERMISSION_" + i).toList();
+        AuthorityTable table = new AuthorityTable(catalog);
+
+        String encoded = table.encode(catalog);
+
+        Assertions.assertThat(encoded.length()).isLessThan(String.join(" ", catalog).length() / 50);
+        Assertions.assertThat(table.authorities(encoded)).hasSize(500);
+    }
+
+    @Test
+    void encode_unknownName_null() {
+        AuthorityTable table = new AuthorityTable(CATALOG);
+
+        Assertions.assertThat(table.encode(List.of("ROLE_USER", "DELETE_DATA"))).isNull();
+    }
+
+    @Test
+    void version_sameNamesInAnyOrder_same() {
+        AuthorityTable table = new AuthorityTable(CATALOG);
+        AuthorityTable reordered = new AuthorityTable(CATALOG.reversed());
+
+        Assertions.assertThat(reordered.version()).isEqualTo(table.version());
+        Assertions.assertThat(reordered.authorities(table.encode(List.of("CREATE_DATA"))))
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("CREATE_DATA");
+    }
+
+    @Test
+    void authorities_otherCatalogVersion_null() {
+        AuthorityTable table = new AuthorityTable(CATALOG);
+        AuthorityTable changed = new AuthorityTable(List.of("ROLE_ADMIN", "ROLE_USER", "DELETE_DATA"));
+
+        String encoded = table.encode(List.of("ROLE_ADMIN"));
+
+        Assertions.assertThat(changed.authorities(encoded)).isNull();
+        Assertions.assertThat(table.authorities("not-a-version.AQ")).isNull();
+        Assertions.assertThat(table.authorities(table.version() + ".////")).isNull();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+public class BloomFilterTest {
+    @Test
+    void mightContain_insertedValues_true() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        var values = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        values.forEach(filter::put);
+
+        Assertions.assertThat(values).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void mightContain_unknownValues_mostlyFalse() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        IntStream.range(0, 1000).forEach(i -> filter.put(UUID.randomUUID().toString()));
+
+        long falsePositives = IntStream.range(0, 10000)
+                .filter(i -> filter.mightContain(UUID.randomUUID().toString()))
+                .count();
+
+        Assertions.assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CatalogSnapshotTest {
+    private final AtomicReference<List<String>> table = new AtomicReference<>(List.of("ADMIN"));
+    private final CatalogSnapshot<List<String>> snapshot = new CatalogSnapshot<>(() -> new ArrayList<>(table.get()));
+
+    @Test
+    void reload_changedElsewhere_newCopyServed() {
+        snapshot.get();
+
+        table.set(List.of("ADMIN", "USER"));
+        Assertions.assertThat(snapshot.reload()).isTrue();
+
+        Assertions.assertThat(snapshot.get()).containsExactly("ADMIN", "USER");
+    }
+
+    @Test
+    void reload_unchanged_sameInstanceKept() {
+        List<String> before = snapshot.get();
+
+        Assertions.assertThat(snapshot.reload()).isFalse();
+
+        Assertions.assertThat(snapshot.get()).isSameAs(before);
+        Assertions.assertThat(snapshot.misses()).isEqualTo(1);
+    }
+
+    @Test
+    void reload_invalidatedWhileLoading_leftToNextReader() {
+        AtomicReference<CatalogSnapshot<List<String>>> self = new AtomicReference<>();
+        AtomicBoolean writeDuringLoad = new AtomicBoolean();
+        CatalogSnapshot<List<String>> racing = new CatalogSnapshot<>(() -> {
+            List<String> loaded = new ArrayList<>(table.get());
+            // a write on this instance commits and invalidates before the reload publishes what it read
+            if (writeDuringLoad.getAndSet(false)) {
+                table.set(List.of("ADMIN", "USER"));
+                self.get().invalidate();
+            }
+            return loaded;
+        });
+        self.set(racing);
+        racing.get();
+
+        writeDuringLoad.set(true);
+        racing.reload();
+
+        Assertions.assertThat(racing.get()).containsExactly("ADMIN", "USER");
+        Assertions.assertThat(racing.misses()).isEqualTo(2);
+    }
+}
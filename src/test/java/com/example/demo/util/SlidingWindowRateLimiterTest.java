@@ -0,0 +1,89 @@
+package com.example.demo.util;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class SlidingWindowRateLimiterTest {
+    private static final long WINDOW = 60_000;
+    private static final long START = 1_000 * WINDOW;
+
+    @Test
+    void tryAcquire_overLimit_rejectedWithRetryAfter() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(5, WINDOW, 1024);
+
+        IntStream.range(0, 5).forEach(i -> Assertions.assertThat(limiter.tryAcquire("alice", START + i)).isZero());
+        long retryAfter = limiter.tryAcquire("alice", START + 10);
+
+        Assertions.assertThat(retryAfter).isPositive().isLessThanOrEqualTo(2 * WINDOW);
+        Assertions.assertThat(limiter.tryAcquire("bob", START + 10)).isZero();
+    }
+
+    @Test
+    void tryAcquire_previousWindowDecays_allowedAgain() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(5, WINDOW, 1024);
+        IntStream.range(0, 5).forEach(i -> limiter.tryAcquire("alice", START));
+
+        // 10% into the next window the previous 5 attempts still weigh 4.5
+        Assertions.assertThat(limiter.tryAcquire("alice", START + WINDOW + WINDOW / 10)).isPositive();
+        // past 20% they weigh less than 4, leaving room for one attempt
+        Assertions.assertThat(limiter.tryAcquire("alice", START + WINDOW + WINDOW / 4)).isZero();
+        // two windows later nothing is left
+        Assertions.assertThat(limiter.tryAcquire("alice", START + 2 * WINDOW + WINDOW / 2)).isZero();
+    }
+
+    @Test
+    void tryAcquire_retryAfterElapsed_allowed() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, WINDOW, 1024);
+        IntStream.range(0, 3).forEach(i -> limiter.tryAcquire("alice", START));
+
+        long retryAfter = limiter.tryAcquire("alice", START);
+
+        Assertions.assertThat(limiter.tryAcquire("alice", START + retryAfter - 1000)).isPositive();
+        Assertions.assertThat(limiter.tryAcquire("alice", START + retryAfter)).isZero();
+    }
+
+    @Test
+    void tryAcquire_manyKeys_fixedTableStillServesOthers() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(10, WINDOW, 4096);
+        IntStream.range(0, 8_000).forEach(i -> limiter.tryAcquire("attacker" + i, START));
+
+        long allowed = IntStream.range(0, 1000)
+                .filter(i -> limiter.tryAcquire("user" + i, START) == 0)
+                .count();
+
+        Assertions.assertThat(allowed).isGreaterThan(950);
+    }
+
+    @Test
+    void tryAcquire_concurrentBurst_exactlyLimitAllowed() throws Exception {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(50, WINDOW, 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        try {
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    if (limiter.tryAcquire("alice", START) == 0) allowed.incrementAndGet();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> attempt : attempts) attempt.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(allowed.get()).isEqualTo(50);
+    }
+}